@@ -12,6 +12,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import org.apache.log4j.Level;
@@ -21,6 +22,8 @@ import com.libereco.taxmap.symbolics.classifier.IGestaltClassifier;
 import com.libereco.taxmap.symbolics.config.Configurable;
 import com.libereco.taxmap.symbolics.config.ConfigurableException;
 import com.libereco.taxmap.symbolics.data.ling.IAtomicConceptOfLabel;
+import com.libereco.taxmap.symbolics.data.ling.IDenotation;
+import com.libereco.taxmap.symbolics.data.ling.ILabelConcept;
 import com.libereco.taxmap.symbolics.data.map.IGestaltMap;
 import com.libereco.taxmap.symbolics.data.map.IMapFactory;
 import com.libereco.taxmap.symbolics.data.tree.Gestalt;
@@ -31,6 +34,8 @@ import com.libereco.taxmap.symbolics.reader.gestalt.IGestaltReader;
 import com.libereco.taxmap.symbolics.reader.map.IMapReader;
 import com.libereco.taxmap.symbolics.comparator.element.IComparatorArxiv;
 import com.libereco.taxmap.symbolics.comparator.structure.tree.ITreeComparator;
+import com.libereco.taxmap.symbolics.semantics.DenotationException;
+import com.libereco.taxmap.symbolics.semantics.IDenotationComparator;
 import com.libereco.taxmap.symbolics.semantics.ILinguisticSemantic;
 import com.libereco.taxmap.symbolics.semantics.ISenseComparator;
 import com.libereco.taxmap.symbolics.semantics.wordnet.InMemoryWordNetBinaryArray;
@@ -234,11 +239,54 @@ public class TaxMapController extends Configurable implements ITaxMapController
         }
 
         log.info("Element level comparison...");
+        if (senseComparator instanceof IDenotationComparator) {
+            compareSenses((IDenotationComparator) senseComparator, Gestalt1, Gestalt2);
+        }
         final IGestaltMap<IAtomicConceptOfLabel> conceptMap = comparatorArxiv.elementLevelMap(Gestalt1, Gestalt2);
         log.info("Element level comparison finished");
         return conceptMap;
     }
 
+    /**
+     * Compares the senses of all source concepts with those of all target concepts in one batch,
+     * so that the sense pairs the element level matchers ask for are already cached.
+     *
+     * @param comparator sense comparator
+     * @param Gestalt1 source gestalt
+     * @param Gestalt2 target gestalt
+     * @throws TaxMapException TaxMapException
+     */
+    private void compareSenses(IDenotationComparator comparator, IGestalt Gestalt1, IGestalt Gestalt2) throws TaxMapException {
+        final List<List<IDenotation>> sourceMeaningLists = getDenotationLists(Gestalt1);
+        final List<List<IDenotation>> targetMeaningLists = getDenotationLists(Gestalt2);
+        if (sourceMeaningLists.isEmpty() || targetMeaningLists.isEmpty()) {
+            return;
+        }
+        try {
+            final char[] relations = comparator.getRelationMatrix(sourceMeaningLists, targetMeaningLists);
+            if (log.isDebugEnabled()) {
+                log.debug("Compared sense lists: " + relations.length);
+            }
+        } catch (DenotationException e) {
+            final String errorMessage = e.getClass().getSimpleName() + ": " + e.getMessage();
+            log.error(errorMessage, e);
+            throw new TaxMapException(errorMessage, e);
+        }
+    }
+
+    private static List<List<IDenotation>> getDenotationLists(IGestalt gestalt) {
+        final List<List<IDenotation>> result = new ArrayList<List<IDenotation>>();
+        for (INode node : gestalt.GetNodeList()) {
+            for (ILabelConcept concept : node.getNodeCore().getConceptList()) {
+                final List<IDenotation> denotations = concept.getDenotationList();
+                if (null != denotations && !denotations.isEmpty()) {
+                    result.add(denotations);
+                }
+            }
+        }
+        return result;
+    }
+
     public IGestaltMap<INode> structureLevelMap(IGestalt Gestalt1,
                                                          IGestalt Gestalt2, IGestaltMap<IAtomicConceptOfLabel> conceptMap) throws TaxMapException {
         if (null == treeComparator) {
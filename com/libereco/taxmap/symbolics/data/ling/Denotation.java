@@ -67,11 +67,24 @@ public class Denotation implements IDenotation
 		return true;
 	}
 
+	/**
+	 * Returns the meaning packed by {@link SenseIdCodec}, or SenseIdCodec.NO_ID.
+	 */
+	public long getPackedId() 
+	{
+		return SenseIdCodec.encode(_position, _id);
+	}
+
 	public int hash() 
 	{
 		int hashval = (int) _position;
 		hashval = 29 * hashval + (int) (_id ^ (_id >>> 31));
 		return hashval;
 	}
+
+	public int hashCode() 
+	{
+		return hash();
+	}
 }
 
@@ -89,6 +89,11 @@ public interface ILabelConcept extends IIndexedObject
 	 */
 	List<IDenotation> getDenotationList();
 
+	/**
+	 * @return meanings of the query label packed by {@link SenseIdCodec}, in order.
+	 */
+	long[] getDenotationIds();
+
 	/**
 	 * Creates a meaning and adds it as the last meaning.
 	 *
@@ -136,6 +136,16 @@ public class LabelConcept extends IndexedObject implements ILabelConcept
 		}
 	}
 
+	public long[] getDenotationIds() 
+	{
+		long[] ids = new long[getDenotationCount()];
+		for (int i = 0; i < ids.length; i++) 
+		{
+			ids[i] = SenseIdCodec.encode(_meaningList.get(i));
+		}
+		return ids;
+	}
+
 	public IDenotation createDenotation(char pos, long id) 
 	{
 		IDenotation meaning = new Denotation(pos, id);
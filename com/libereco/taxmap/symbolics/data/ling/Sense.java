@@ -57,9 +57,20 @@ public class Sense implements ISense
         return true;
     }
 
+    /**
+     * Returns the sense packed by {@link SenseIdCodec}, or SenseIdCodec.NO_ID.
+     */
+    public long getPackedId() {
+        return SenseIdCodec.encode(_pos, _id);
+    }
+
     public int hash() {
         int hashval = (int) _pos;
         hashval = 29 * hashval + (int) (_id ^ (_id >>> 31));
         return hashval;
     }
+
+    public int hashCode() {
+        return hash();
+    }
 }
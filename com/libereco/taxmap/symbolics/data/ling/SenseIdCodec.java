@@ -0,0 +1,104 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.data.ling;
+
+/**
+ * Packs a sense, given by part of speech and data file offset, into one number:
+ * a part of speech digit (9 noun, 8 verb, 7 adjective, 6 adverb) times
+ * {@link #OFFSET_RADIX} plus the offset. Every packed id fits in 30 bits, so it can
+ * be stored in an int as well as in a long.
+ *
+ * @author Chiranjit Acharya
+ */
+public final class SenseIdCodec
+{
+	/**
+	 * Returned by {@link #encode} for senses that cannot be packed.
+	 */
+	public static final long NO_ID = -1L;
+
+	/**
+	 * Offsets are below this radix, WordNet data file offsets having eight digits.
+	 */
+	public static final long OFFSET_RADIX = 100000000L;
+
+	private static final String POS_KEYS = "??????ravn";
+
+	private SenseIdCodec()
+	{
+	}
+
+	/**
+	 * Packs a sense.
+	 *
+	 * @param pos part of speech key: n, v, a (or s, for adjective satellites) or r
+	 * @param offset data file offset
+	 * @return packed id, or {@link #NO_ID} if the part of speech is unknown or the
+	 *         offset out of range
+	 */
+	public static long encode(char pos, long offset)
+	{
+		final int digit = getPosDigit(pos);
+		if (0 > digit || 0 > offset || OFFSET_RADIX <= offset)
+		{
+			return NO_ID;
+		}
+		return digit * OFFSET_RADIX + offset;
+	}
+
+	public static long encode(IDenotation meaning)
+	{
+		return encode(meaning.getPosition(), meaning.getId());
+	}
+
+	/**
+	 * Returns the part of speech key of a packed id: n, v, a or r.
+	 */
+	public static char getPos(long id)
+	{
+		return POS_KEYS.charAt((int) (id / OFFSET_RADIX));
+	}
+
+	/**
+	 * Returns the data file offset of a packed id.
+	 */
+	public static long getOffset(long id)
+	{
+		return id % OFFSET_RADIX;
+	}
+
+	/**
+	 * Checks whether a number is a packed id.
+	 */
+	public static boolean isValid(long id)
+	{
+		return 6 * OFFSET_RADIX <= id && 10 * OFFSET_RADIX > id;
+	}
+
+	/**
+	 * Returns the digit of a part of speech key, or -1 if the key is unknown.
+	 */
+	public static int getPosDigit(char pos)
+	{
+		switch (pos)
+		{
+		case 'n':
+			return 9;
+		case 'v':
+			return 8;
+		case 'a':
+		case 's':
+			return 7;
+		case 'r':
+			return 6;
+		default:
+			return -1;
+		}
+	}
+}
@@ -27,6 +27,9 @@ public interface IRelationInstance<T>
 
 	char UNKNOWN = '?';
 
+	// no relation could be established between the operands
+	char IDK = UNKNOWN;
+
 	T getSource();
 
 	T getTarget();
@@ -29,6 +29,32 @@ public interface IDenotationComparator extends IEnvironment
 	 */
 	public char getRelation(List<IDenotation> sourceMeaningList, List<IDenotation> targetMeaningList) throws DenotationException;
 
+	/**
+	 * Returns semantic relation between the senses of two surface forms, each restricted
+	 * to some parts of speech. Implementations cache the relation of each pair of forms,
+	 * so repeated pairs skip the sense lookups and the sense-pair loop.
+	 *
+	 * @param sourceExpression source surface form
+	 * @param sourcePositions part of speech keys the source senses may have, or null for all
+	 * @param targetExpression target surface form
+	 * @param targetPositions part of speech keys the target senses may have, or null for all
+	 * @return relation between the senses of the two forms
+	 * @throws DenotationException
+	 */
+	public char getRelation(String sourceExpression, String sourcePositions, String targetExpression, String targetPositions) throws DenotationException;
+
+	/**
+	 * Returns semantic relations between every source and every target set of senses,
+	 * computing identical sets and identical pairs of senses only once.
+	 *
+	 * @param sourceMeaningLists source lists of senses
+	 * @param targetMeaningLists target lists of senses
+	 * @return relations in row-major order, the one between source list i and target
+	 *         list j at i * targetMeaningLists.size() + j
+	 * @throws DenotationException
+	 */
+	public char[] getRelationMatrix(List<List<IDenotation>> sourceMeaningLists, List<List<IDenotation>> targetMeaningLists) throws DenotationException;
+
 	/**
 	 * Checks whether the source sense is more general than the target sense.
 	 *
@@ -29,6 +29,20 @@ public interface IDenotationComparator extends IEnvironment
 	 */
 	public char getRelation(List<IDenotation> sourceMeaningList, List<IDenotation> targetMeaningList) throws DenotationException;
 
+	/**
+	 * Returns semantic relation between the senses of two surface forms, each restricted
+	 * to some parts of speech. Implementations cache the relation of each pair of forms,
+	 * so repeated pairs skip the sense lookups and the sense-pair loop.
+	 *
+	 * @param sourceExpression source surface form
+	 * @param sourcePositions part of speech keys the source senses may have, or null for all
+	 * @param targetExpression target surface form
+	 * @param targetPositions part of speech keys the target senses may have, or null for all
+	 * @return relation between the senses of the two forms
+	 * @throws DenotationException
+	 */
+	public char getRelation(String sourceExpression, String sourcePositions, String targetExpression, String targetPositions) throws DenotationException;
+
 	/**
 	 * Checks whether the source sense is more general than the target sense.
 	 *
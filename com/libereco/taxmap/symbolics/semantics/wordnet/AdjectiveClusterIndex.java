@@ -0,0 +1,162 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Map;
+
+import com.libereco.taxmap.symbolics.semantics.SemanticsException;
+
+/**
+ * Cluster id of every adjective synset, indexed by ordinal from the first adjective.
+ * <p>
+ * WordNet groups adjectives into clusters of a head synset and the satellites similar
+ * to it. The index numbers the clusters by the connected components of the similar-to
+ * pointers, each by its smallest ordinal, so two adjectives are in one cluster exactly
+ * when their ids are equal.
+ *
+ * @author Chiranjit Acharya
+ */
+public class AdjectiveClusterIndex
+{
+	private static final int ADJECTIVE = WordNetBinaryArray.getPosIndex('a');
+
+	private final int _start;
+	private final IntBuffer _clusters;
+
+	private AdjectiveClusterIndex(int start, IntBuffer clusters)
+	{
+		_start = start;
+		_clusters = clusters;
+	}
+
+	/**
+	 * Returns the index stored in a compiled graph, or builds it from the pointer rows
+	 * if the graph was compiled without it.
+	 *
+	 * @param array compiled synset graph
+	 * @return adjective cluster index
+	 * @throws SemanticsException
+	 */
+	public static AdjectiveClusterIndex load(WordNetBinaryArray array) throws SemanticsException
+	{
+		if (null == array.getSection(WordNetBinaryArray.SECTION_ADJECTIVE_CLUSTERS))
+		{
+			return build(array);
+		}
+		return new AdjectiveClusterIndex(array.getPosStart(ADJECTIVE), array.getIntSection(WordNetBinaryArray.SECTION_ADJECTIVE_CLUSTERS));
+	}
+
+	/**
+	 * Builds the index by joining the adjectives along their similar-to pointers.
+	 *
+	 * @param array compiled synset graph
+	 * @return adjective cluster index
+	 */
+	public static AdjectiveClusterIndex build(WordNetBinaryArray array)
+	{
+		final int start = array.getPosStart(ADJECTIVE);
+		final int end = array.getPosEnd(ADJECTIVE);
+		int[] clusters = new int[end - start];
+		for (int i = 0; i < clusters.length; i++)
+		{
+			clusters[i] = i;
+		}
+		for (int ordinal = start; ordinal < end; ordinal++)
+		{
+			final int last = array.getPointerEnd(ordinal, WordNetBinaryArray.SIMILAR_TO);
+			for (int i = array.getPointerStart(ordinal, WordNetBinaryArray.SIMILAR_TO); i < last; i++)
+			{
+				final int target = array.getPointerTarget(i);
+				if (start <= target && target < end)
+				{
+					join(clusters, ordinal - start, target - start);
+				}
+			}
+		}
+		// parents precede their children, so a forward pass resolves every chain
+		for (int i = 0; i < clusters.length; i++)
+		{
+			clusters[i] = clusters[clusters[i]];
+		}
+		for (int i = 0; i < clusters.length; i++)
+		{
+			clusters[i] += start;
+		}
+		return new AdjectiveClusterIndex(start, IntBuffer.wrap(clusters));
+	}
+
+	/**
+	 * Adds the index to the sections of a graph being compiled.
+	 */
+	public void writeSections(Map<Integer, ByteBuffer> sections)
+	{
+		int[] clusters = new int[_clusters.limit()];
+		_clusters.duplicate().get(clusters);
+		sections.put(WordNetBinaryArray.SECTION_ADJECTIVE_CLUSTERS, WordNetBinaryCompiler.toBuffer(clusters));
+	}
+
+	/**
+	 * Returns the cluster id of a synset, the ordinal of the first synset of its cluster,
+	 * or -1 if the synset is not an adjective.
+	 */
+	public int getCluster(int ordinal)
+	{
+		final int index = ordinal - _start;
+		if (0 > index || index >= _clusters.limit())
+		{
+			return -1;
+		}
+		return _clusters.get(index);
+	}
+
+	/**
+	 * Checks whether two synsets are adjectives of one cluster.
+	 */
+	public boolean isSameCluster(int source, int target)
+	{
+		final int cluster = getCluster(source);
+		return 0 <= cluster && cluster == getCluster(target);
+	}
+
+	/**
+	 * Merges the components of two adjectives under the smaller root, compressing the
+	 * paths walked.
+	 */
+	private static void join(int[] clusters, int first, int second)
+	{
+		final int firstRoot = find(clusters, first);
+		final int secondRoot = find(clusters, second);
+		if (firstRoot < secondRoot)
+		{
+			clusters[secondRoot] = firstRoot;
+		}
+		else if (secondRoot < firstRoot)
+		{
+			clusters[firstRoot] = secondRoot;
+		}
+	}
+
+	private static int find(int[] clusters, int index)
+	{
+		int root = index;
+		while (clusters[root] != root)
+		{
+			root = clusters[root];
+		}
+		while (clusters[index] != root)
+		{
+			final int next = clusters[index];
+			clusters[index] = root;
+			index = next;
+		}
+		return root;
+	}
+}
@@ -0,0 +1,106 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.libereco.taxmap.symbolics.semantics.ISynset;
+import com.libereco.taxmap.symbolics.semantics.SemanticsException;
+
+/**
+ * Synset backed by a compiled {@link WordNetBinaryArray}.
+ * @author Chiranjit Acharya
+ */
+public class BinarySynonymSet implements ISynset
+{
+	private final WordNetBinaryArray _array;
+	private final int _ordinal;
+
+	/**
+	 * Constructor class with synset ordinal input.
+	 *
+	 * @param array compiled synset graph
+	 * @param ordinal synset ordinal
+	 */
+	public BinarySynonymSet(WordNetBinaryArray array, int ordinal)
+	{
+		_array = array;
+		_ordinal = ordinal;
+	}
+
+	public int getOrdinal()
+	{
+		return _ordinal;
+	}
+
+	public String getGloss()
+	{
+		return _array.getGloss(_ordinal);
+	}
+
+	public List<String> getLemmaList()
+	{
+		final int wordCount = _array.getWordCount(_ordinal);
+		List<String> strList = new ArrayList<String>(wordCount);
+		for (int i = 0; i < wordCount; i++)
+		{
+			strList.add(_array.getLemma(_array.getWord(_ordinal, i)));
+		}
+		return strList;
+	}
+
+	public List<ISynset> getHypernymList() throws SemanticsException
+	{
+		return getHypernymList(1);
+	}
+
+	public List<ISynset> getHypernymList(int level) throws SemanticsException
+	{
+		return getClosure(SynsetClosureIterator.hypernyms(_array, _ordinal, level, Integer.MAX_VALUE));
+	}
+
+	public List<ISynset> getHyponymList() throws SemanticsException
+	{
+		return getHyponymList(1);
+	}
+
+	public List<ISynset> getHyponymList(int level) throws SemanticsException
+	{
+		return getClosure(SynsetClosureIterator.hyponyms(_array, _ordinal, level, Integer.MAX_VALUE));
+	}
+
+	/**
+	 * Collects the synsets of a closure in the order it walks them.
+	 */
+	private List<ISynset> getClosure(SynsetClosureIterator closure)
+	{
+		List<ISynset> senseList = new ArrayList<ISynset>();
+		while (closure.hasNext())
+		{
+			senseList.add(new BinarySynonymSet(_array, closure.nextOrdinal()));
+		}
+		return senseList;
+	}
+
+	public boolean equals(Object object)
+	{
+		if (this == object) return true;
+		if (!(object instanceof BinarySynonymSet)) return false;
+
+		final BinarySynonymSet sense = (BinarySynonymSet) object;
+
+		return _ordinal == sense._ordinal && _array == sense._array;
+	}
+
+	public int hashCode()
+	{
+		return _ordinal;
+	}
+}
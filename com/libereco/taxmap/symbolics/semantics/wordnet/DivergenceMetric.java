@@ -17,7 +17,12 @@ import net.didion.jwnl.data.list.PointerTargetNode;
 import net.didion.jwnl.data.*;
 import net.didion.jwnl.JWNLException;
 
+import com.libereco.taxmap.symbolics.semantics.SemanticsException;
+
 /**
+ * Edit distance between multi-word labels, with the WordNet divergence of two lemmas
+ * as the substitution cost. Instances hold no per-call state, so one instance can be
+ * used by several threads at once.
  *
  * @author Chiranjit Acharya
  */
@@ -26,52 +31,228 @@ public class DivergenceMetric
 	private static final POS[] m_GramClass = { POS.NOUN };
 	
 	private Dictionary m_KnowledgeBase;
-	private static final int STRING_SIZE_MAJOR = 1024;
-	private String[][] m_GramList = new String[2][];
-	private float[][] m_Divergence = new float[STRING_SIZE_MAJOR + 1][STRING_SIZE_MAJOR + 1];
+	private WordNetBinaryArray m_BinaryArray;
+	private SynsetDepthTable m_DepthTable;
+	private LowestCommonAncestorIndex m_AncestorIndex;
+
+	public static final int DEFAULT_CACHE_SIZE = 1 << 16;
+
+	// divergences of lemma pairs already compared, keyed on the pair of lemma ids in
+	// either order and stored as float bits plus one, since zero marks a free slot
+	private final LemmaIdTable m_LemmaIds;
+	private final RelationCache m_LemmaDivergences;
+
+	// two rows of the edit distance table per thread, grown as needed
+	private static final ThreadLocal<float[][]> m_Rows = new ThreadLocal<float[][]>();
 
 	public DivergenceMetric(Dictionary dictionary) 
 	{
-		for (int i = 0; i <= STRING_SIZE_MAJOR; i++) 
-		{
-			m_Divergence[i][0] = i;
-		}
-		for (int j = 0; j <= STRING_SIZE_MAJOR; j++) 
-		{
-			m_Divergence[0][j] = j;
-		}	
+		this(dictionary, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * Constructor bounding the number of lemma pairs whose divergence is cached.
+	 */
+	public DivergenceMetric(Dictionary dictionary, int cacheSize) 
+	{
 		this.m_KnowledgeBase = dictionary;
+		this.m_LemmaIds = new LemmaIdTable();
+		this.m_LemmaDivergences = new RelationCache(cacheSize);
+	}
+
+	/**
+	 * Constructor taking a compiled synset graph, whose depth table and common ancestor
+	 * index replace the hypernym tree walks for synsets found in it.
+	 */
+	public DivergenceMetric(Dictionary dictionary, WordNetBinaryArray binaryArray) throws SemanticsException
+	{
+		this(dictionary);
+		this.m_DepthTable = SynsetDepthTable.load(binaryArray);
+		this.m_AncestorIndex = new LowestCommonAncestorIndex(binaryArray);
+		this.m_BinaryArray = binaryArray;
 	}
 
 	public float ComputeGramDivergence(String MultiGram1, String MultiGram2) 
+	{
+		return ComputeGramDivergence(MultiGram1.split(" "), MultiGram2.split(" "));
+	}
+
+	/**
+	 * Scores one label against many labels.
+	 *
+	 * @return divergence from MultiGram to each of MultiGrams
+	 */
+	public float[] ComputeGramDivergences(String MultiGram, String[] MultiGrams) 
+	{
+		String[] GramList = MultiGram.split(" ");
+		float[] Divergences = new float[MultiGrams.length];
+		for (int k = 0; k < MultiGrams.length; k++) 
+		{
+			Divergences[k] = ComputeGramDivergence(GramList, MultiGrams[k].split(" "));
+		}
+		return Divergences;
+	}
+
+	// Edit distance over two rows, the previous one and the current one
+	private float ComputeGramDivergence(String[] GramList1, String[] GramList2) 
 	{
 		float PayOff = 0.0f;
 
-		m_GramList[0] = MultiGram1.split(" ");
-		m_GramList[1] = MultiGram2.split(" ");
+		float[][] Rows = GetRows(GramList2.length + 1);
+		float[] Previous = Rows[0];
+		float[] Current = Rows[1];
 
-		for (int i = 1; i <= m_GramList[0].length; i++) 
+		for (int j = 0; j <= GramList2.length; j++) 
 		{
-			for (int j = 1; j <= m_GramList[1].length; j++) 
+			Previous[j] = j;
+		}
+
+		for (int i = 1; i <= GramList1.length; i++) 
+		{
+			Current[0] = i;
+			for (int j = 1; j <= GramList2.length; j++) 
 			{
 				try 
 				{
-					PayOff = ComputeLemmaDivergence(m_GramList[0][i - 1], m_GramList[1][j - 1]);
+					PayOff = ComputeLemmaDivergence(GramList1[i - 1], GramList2[j - 1]);
 				} 
 				catch (Exception e) 
 				{
 					PayOff = 1.0f;
 				}
 
-				m_Divergence[i][j] = Math.min(Math.min(m_Divergence[i-1][j] + 1.0f, m_Divergence[i][j-1] + 1.0f), 
-								m_Divergence[i-1][j-1] + PayOff);
+				Current[j] = Math.min(Math.min(Previous[j] + 1.0f, Current[j-1] + 1.0f), 
+								Previous[j-1] + PayOff);
 			}
+			float[] Swap = Previous;
+			Previous = Current;
+			Current = Swap;
 		}
 
-		return m_Divergence[m_GramList[0].length][m_GramList[1].length];
+		return Previous[GramList2.length];
+	}
+
+	/**
+	 * Returns the divergence of two labels if it is at most MaxDivergence, and
+	 * Float.POSITIVE_INFINITY otherwise. Cells that cannot lie on a path within the
+	 * threshold are skipped, the lemma divergence is only asked for when it can lower
+	 * a cell, and the computation stops once no row cell can stay within the threshold.
+	 */
+	public float ComputeGramDivergence(String MultiGram1, String MultiGram2, float MaxDivergence) 
+	{
+		final String[] GramList1 = MultiGram1.split(" ");
+		final String[] GramList2 = MultiGram2.split(" ");
+		final int Length1 = GramList1.length;
+		final int Length2 = GramList2.length;
+		// every word left unmatched costs one
+		if (Math.abs(Length1 - Length2) > MaxDivergence) 
+		{
+			return Float.POSITIVE_INFINITY;
+		}
+
+		float[][] Rows = GetRows(Length2 + 1);
+		float[] Previous = Rows[0];
+		float[] Current = Rows[1];
+
+		for (int j = 0; j <= Length2; j++) 
+		{
+			Previous[j] = j + Math.abs(Length1 - (Length2 - j)) > MaxDivergence ? Float.POSITIVE_INFINITY : j;
+		}
+
+		for (int i = 1; i <= Length1; i++) 
+		{
+			boolean Alive = false;
+			Current[0] = i + Math.abs((Length1 - i) - Length2) > MaxDivergence ? Float.POSITIVE_INFINITY : i;
+			for (int j = 1; j <= Length2; j++) 
+			{
+				// lower bound of any path through the cell from here to the end
+				final int Remaining = Math.abs((Length1 - i) - (Length2 - j));
+				float Cell = Math.min(Previous[j], Current[j - 1]) + 1.0f;
+				final float Diagonal = Previous[j - 1];
+				// the pay-off lies in [0, 1], so it only matters when the diagonal can win
+				if (Diagonal < Cell && Diagonal + Remaining <= MaxDivergence) 
+				{
+					float PayOff;
+					try 
+					{
+						PayOff = ComputeLemmaDivergence(GramList1[i - 1], GramList2[j - 1]);
+					} 
+					catch (Exception e) 
+					{
+						PayOff = 1.0f;
+					}
+					Cell = Math.min(Cell, Diagonal + PayOff);
+				}
+				if (Cell + Remaining > MaxDivergence) 
+				{
+					Cell = Float.POSITIVE_INFINITY;
+				}
+				else 
+				{
+					Alive = true;
+				}
+				Current[j] = Cell;
+			}
+			if (!Alive && Current[0] == Float.POSITIVE_INFINITY) 
+			{
+				return Float.POSITIVE_INFINITY;
+			}
+			float[] Swap = Previous;
+			Previous = Current;
+			Current = Swap;
+		}
+
+		return Previous[Length2];
+	}
+
+	// Returns the two rows of this thread's edit distance table, at least Length long
+	private static float[][] GetRows(int Length) 
+	{
+		float[][] Rows = m_Rows.get();
+		if (null == Rows || Rows[0].length < Length) 
+		{
+			Rows = new float[2][Math.max(Length, 16)];
+			m_Rows.set(Rows);
+		}
+		return Rows;
 	}
 
+	/**
+	 * Returns the cache of lemma pair divergences, with its hit and miss counters.
+	 */
+	public RelationCache GetLemmaDivergenceCache() 
+	{
+		return m_LemmaDivergences;
+	}
+
+	/**
+	 * Returns the divergence of two lemmas, which does not depend on their order.
+	 * Pairs are cached once both lemmas have an id, without allocating on a hit.
+	 */
 	public float ComputeLemmaDivergence(String lemma1, String lemma2) 
+	{
+		if (lemma1.equals(lemma2)) 
+		{
+			return 0.0f;
+		}
+		final int Id1 = m_LemmaIds.intern(lemma1);
+		final int Id2 = m_LemmaIds.intern(lemma2);
+		if (0 > Id1 || 0 > Id2) 
+		{
+			return ComputeUncachedLemmaDivergence(lemma1, lemma2);
+		}
+		final long LemmaPair = Id1 < Id2 ? ((long) Id1 << 32) | Id2 : ((long) Id2 << 32) | Id1;
+		final int Cached = m_LemmaDivergences.getValue(LemmaPair);
+		if (RelationCache.NOT_FOUND != Cached) 
+		{
+			return Float.intBitsToFloat(Cached - 1);
+		}
+		final float Divergence = ComputeUncachedLemmaDivergence(lemma1, lemma2);
+		m_LemmaDivergences.putValue(LemmaPair, Float.floatToIntBits(Divergence) + 1);
+		return Divergence;
+	}
+
+	private float ComputeUncachedLemmaDivergence(String lemma1, String lemma2) 
 	{
 		IndexWordSet XWordList1, XWordList2;
 		IndexWord XWord1, XWord2;
@@ -80,42 +261,36 @@ public class DivergenceMetric
 		float MinimumDivergence = 1.0f;
 		POS p;
 
-		if (lemma1.equals(lemma2)) 
-		{
-			MinimumDivergence = 0.0f;
-		} 
-		else 
+		// equal lemmas are answered by ComputeLemmaDivergence
+		try 
 		{
-			try 
+			// Compute complete definition for each word (all POS, all senses)
+			XWordList1 = this.m_KnowledgeBase.lookupAllIndexWords(lemma1);
+			XWordList2 = this.m_KnowledgeBase.lookupAllIndexWords(lemma2);
+
+			// for each POS listed in word classes...
+			for (int i = 0; i < m_GramClass.length; i++) 
 			{
-				// Compute complete definition for each word (all POS, all senses)
-				XWordList1 = this.m_KnowledgeBase.lookupAllIndexWords(lemma1);
-				XWordList2 = this.m_KnowledgeBase.lookupAllIndexWords(lemma2);
+				p = m_GramClass[i];
 
-				// for each POS listed in word classes...
-				for (int i = 0; i < m_GramClass.length; i++) 
+				if (XWordList1.isValidPOS(p) && XWordList2.isValidPOS(p)) 
 				{
-					p = m_GramClass[i];
+					XWord1 = XWordList1.getIndexWord(p);
+					XWord2 = XWordList2.getIndexWord(p);
 
-					if (XWordList1.isValidPOS(p) && XWordList2.isValidPOS(p)) 
+					// Compute Divergence between words based on this POS
+					Divergence = ComputeWordDivergence(XWord1, XWord2);
+					if (Divergence < MinimumDivergence) 
 					{
-						XWord1 = XWordList1.getIndexWord(p);
-						XWord2 = XWordList2.getIndexWord(p);
-
-						// Compute Divergence between words based on this POS
-						Divergence = ComputeWordDivergence(XWord1, XWord2);
-						if (Divergence < MinimumDivergence) 
-						{
-							MinimumDivergence = Divergence;
-						}
+						MinimumDivergence = Divergence;
 					}
 				}
-			} 
-			catch (JWNLException e) 
-			{
-				System.err.println("Exception in WordNet module: " + e);
-				return 1.0f;
 			}
+		} 
+		catch (JWNLException e) 
+		{
+			System.err.println("Exception in WordNet module: " + e);
+			return 1.0f;
 		}
 
 		return MinimumDivergence;
@@ -126,13 +301,19 @@ public class DivergenceMetric
 	{
 		RelationshipList RelationList;
 		AsymmetricRelationship Relation;
-		int CommonIndex, RelationDepth, HypernymTreeDepth, CommonRootDepth, CommonLeafDepth;
+		int CommonIndex, RelationDepth, CommonRootDepth, CommonLeafDepth;
 		float Divergence, MinimumDivergence;
 		PointerTargetNode CommonParent;
 		Synset SynsetInstance;
-		List HypernymTree;
 
 		Divergence = 1.0f;
+
+		if (null != m_AncestorIndex) 
+		{
+			float IndexedDivergence = ComputeIndexedDivergence(XWord1.getPOS(), XWord1.getSynsetOffsets(), XWord2.getSynsetOffsets());
+			if (0 <= IndexedDivergence)
+				return IndexedDivergence;
+		}
 		
 		// for each pairing of word senses...
 		for (int i = 1; i <= XWord1.getSenseCount(); i++) 
@@ -169,28 +350,9 @@ public class DivergenceMetric
 
 					// get the synset of the index node
 					SynsetInstance = CommonParent.getSynset();
-          
-					// get all the hypernyms of the common prent synset
-					// returns a list of hypernym chains. probably always one chain, but  better safe...
-					HypernymTree = (PointerUtils.getInstance().getHypernymTree(SynsetInstance,50)).toList();
 
 					// get shortest HypernymTreeDepth from root to common prent
-					CommonRootDepth = -1;
-					for (Iterator HypernymTreeItr = HypernymTree.iterator(); HypernymTreeItr.hasNext();) 
-					{
-						HypernymTreeDepth = ((List) HypernymTreeItr.next()).size();
-						if (CommonRootDepth == -1) 
-						{
-							CommonRootDepth = HypernymTreeDepth;
-						} 
-						else 
-						{
-							if (HypernymTreeDepth < CommonRootDepth) 
-							{
-								CommonRootDepth = HypernymTreeDepth;
-							}
-						}
-					}
+					CommonRootDepth = ComputeRootDepth(SynsetInstance);
 
 					MinimumDivergence = (float) CommonLeafDepth / (CommonRootDepth + CommonLeafDepth);
 					
@@ -202,4 +364,69 @@ public class DivergenceMetric
 
 		return Divergence;
 	}
+
+	// Compute Divergence between the senses of two words through the common ancestor index,
+	// or -1 if a sense is not in the compiled graph
+	private float ComputeIndexedDivergence(POS p, long[] Offsets1, long[] Offsets2)
+	{
+		int[] Ordinals1 = new int[Offsets1.length];
+		int[] Ordinals2 = new int[Offsets2.length];
+		for (int i = 0; i < Offsets1.length; i++) 
+		{
+			if (0 > (Ordinals1[i] = m_BinaryArray.getOrdinal(p.getKey().charAt(0), Offsets1[i])))
+				return -1;
+		}
+		for (int j = 0; j < Offsets2.length; j++) 
+		{
+			if (0 > (Ordinals2[j] = m_BinaryArray.getOrdinal(p.getKey().charAt(0), Offsets2[j])))
+				return -1;
+		}
+
+		float Divergence = 1.0f;
+		int[] Result = new int[3];
+		for (int i = 0; i < Ordinals1.length; i++) 
+		{
+			for (int j = 0; j < Ordinals2.length; j++) 
+			{
+				int CommonParent = m_AncestorIndex.query(Ordinals1[i], Ordinals2[j], Result);
+				if (0 > CommonParent)
+					continue;
+
+				int CommonLeafDepth = Math.max(Result[LowestCommonAncestorIndex.FIRST_DEPTH], Result[LowestCommonAncestorIndex.SECOND_DEPTH]);
+				int CommonRootDepth = m_DepthTable.getDepth(CommonParent) + 1;
+				float MinimumDivergence = (float) CommonLeafDepth / (CommonRootDepth + CommonLeafDepth);
+				if (MinimumDivergence < Divergence)
+					Divergence = MinimumDivergence;
+			}
+		}
+		return Divergence;
+	}
+
+	// Compute the number of synsets on the shortest hypernym chain from a synset to its root
+	private int ComputeRootDepth(Synset SynsetInstance) throws JWNLException
+	{
+		if (null != m_DepthTable) 
+		{
+			int ordinal = m_BinaryArray.getOrdinal(SynsetInstance.getPOS().getKey().charAt(0), SynsetInstance.getOffset());
+			if (0 <= ordinal) 
+			{
+				return m_DepthTable.getDepth(ordinal) + 1;
+			}
+		}
+
+		// get all the hypernyms of the synset
+		// returns a list of hypernym chains. probably always one chain, but  better safe...
+		List HypernymTree = (PointerUtils.getInstance().getHypernymTree(SynsetInstance,50)).toList();
+
+		int CommonRootDepth = -1;
+		for (Iterator HypernymTreeItr = HypernymTree.iterator(); HypernymTreeItr.hasNext();) 
+		{
+			int HypernymTreeDepth = ((List) HypernymTreeItr.next()).size();
+			if (CommonRootDepth == -1 || HypernymTreeDepth < CommonRootDepth) 
+			{
+				CommonRootDepth = HypernymTreeDepth;
+			}
+		}
+		return CommonRootDepth;
+	}
 }
@@ -0,0 +1,258 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Map;
+
+import com.libereco.taxmap.symbolics.semantics.SemanticsException;
+
+/**
+ * Glosses and usage examples of a compiled synset graph, indexed by synset ordinal.
+ * <p>
+ * Glosses stay in the UTF-8 gloss section of the graph, and examples are the quoted
+ * parts of a gloss, kept as byte spans into the same section. Both are returned as
+ * {@link CharSequence} views over the buffer, so that a lookup neither copies nor
+ * parses: views of ASCII text, which is nearly all of WordNet, read their bytes in
+ * place, and other views decode themselves once, on first access.
+ *
+ * @author Chiranjit Acharya
+ */
+public class GlossStore
+{
+	private static final CharSequence[] NO_EXAMPLES = new CharSequence[0];
+
+	private final WordNetBinaryArray _array;
+	private final ByteBuffer _bytes;
+	private final IntBuffer _exampleRows;
+	// start and end byte of every example, in pairs
+	private final IntBuffer _exampleSpans;
+
+	private GlossStore(WordNetBinaryArray array, IntBuffer exampleRows, IntBuffer exampleSpans)
+	{
+		_array = array;
+		_bytes = array.getGlossBytes();
+		_exampleRows = exampleRows;
+		_exampleSpans = exampleSpans;
+	}
+
+	/**
+	 * Returns the store over a compiled graph, finding the examples in the glosses if
+	 * the graph was compiled without them.
+	 *
+	 * @param array compiled synset graph
+	 * @return gloss store
+	 * @throws SemanticsException
+	 */
+	public static GlossStore load(WordNetBinaryArray array) throws SemanticsException
+	{
+		if (null == array.getSection(WordNetBinaryArray.SECTION_EXAMPLE_ROWS))
+		{
+			return build(array);
+		}
+		return new GlossStore(array, array.getIntSection(WordNetBinaryArray.SECTION_EXAMPLE_ROWS), array.getIntSection(WordNetBinaryArray.SECTION_EXAMPLE_SPANS));
+	}
+
+	/**
+	 * Finds the examples in the glosses of a compiled graph.
+	 *
+	 * @param array compiled synset graph
+	 * @return gloss store
+	 */
+	public static GlossStore build(WordNetBinaryArray array)
+	{
+		final ByteBuffer bytes = array.getGlossBytes();
+		final int synsetCount = array.getSynsetCount();
+		int[] rows = new int[synsetCount + 1];
+		WordNetBinaryCompiler.IntList spans = new WordNetBinaryCompiler.IntList();
+		for (int ordinal = 0; ordinal < synsetCount; ordinal++)
+		{
+			rows[ordinal] = spans.size() / 2;
+			final int end = array.getGlossEnd(ordinal);
+			int open = -1;
+			// a quote byte is never part of a multi-byte UTF-8 sequence
+			for (int i = array.getGlossStart(ordinal); i < end; i++)
+			{
+				if ('"' == bytes.get(i))
+				{
+					if (0 > open)
+					{
+						open = i + 1;
+					}
+					else
+					{
+						if (open < i)
+						{
+							spans.add(open);
+							spans.add(i);
+						}
+						open = -1;
+					}
+				}
+			}
+		}
+		rows[synsetCount] = spans.size() / 2;
+		return new GlossStore(array, WordNetBinaryCompiler.toBuffer(rows).asIntBuffer(), WordNetBinaryCompiler.toBuffer(spans.toArray()).asIntBuffer());
+	}
+
+	/**
+	 * Adds the example spans to the sections of a graph being compiled.
+	 */
+	public void writeSections(Map<Integer, ByteBuffer> sections)
+	{
+		sections.put(WordNetBinaryArray.SECTION_EXAMPLE_ROWS, toBuffer(_exampleRows));
+		sections.put(WordNetBinaryArray.SECTION_EXAMPLE_SPANS, toBuffer(_exampleSpans));
+	}
+
+	/**
+	 * Returns the gloss of a synset, or null if it has none.
+	 */
+	public CharSequence getGloss(int ordinal)
+	{
+		final int start = _array.getGlossStart(ordinal);
+		final int end = _array.getGlossEnd(ordinal);
+		return start == end ? null : new Utf8Sequence(_bytes, start, end);
+	}
+
+	public int getExampleCount(int ordinal)
+	{
+		return _exampleRows.get(ordinal + 1) - _exampleRows.get(ordinal);
+	}
+
+	/**
+	 * Returns the index-th usage example of a synset, without its quotes.
+	 */
+	public CharSequence getExample(int ordinal, int index)
+	{
+		final int span = 2 * (_exampleRows.get(ordinal) + index);
+		return new Utf8Sequence(_bytes, _exampleSpans.get(span), _exampleSpans.get(span + 1));
+	}
+
+	/**
+	 * Returns the usage examples of a synset, in gloss order.
+	 */
+	public CharSequence[] getExamples(int ordinal)
+	{
+		final int count = getExampleCount(ordinal);
+		if (0 == count)
+		{
+			return NO_EXAMPLES;
+		}
+		CharSequence[] examples = new CharSequence[count];
+		for (int i = 0; i < count; i++)
+		{
+			examples[i] = getExample(ordinal, i);
+		}
+		return examples;
+	}
+
+	private static ByteBuffer toBuffer(IntBuffer values)
+	{
+		ByteBuffer buffer = WordNetBinaryCompiler.allocate(values.limit() * 4);
+		buffer.asIntBuffer().put(values.duplicate());
+		return buffer;
+	}
+
+	/**
+	 * Character view of a span of UTF-8 bytes.
+	 */
+	private static final class Utf8Sequence implements CharSequence
+	{
+		private static final String ASCII = new String();
+
+		private final ByteBuffer _bytes;
+		private final int _start;
+		private final int _end;
+		// decoded text, or ASCII once the span is known to hold bytes only
+		private volatile String _decoded;
+
+		Utf8Sequence(ByteBuffer bytes, int start, int end)
+		{
+			_bytes = bytes;
+			_start = start;
+			_end = end;
+		}
+
+		public int length()
+		{
+			final String decoded = getDecoded();
+			return null == decoded ? _end - _start : decoded.length();
+		}
+
+		public char charAt(int index)
+		{
+			final String decoded = getDecoded();
+			if (null != decoded)
+			{
+				return decoded.charAt(index);
+			}
+			if (0 > index || _end - _start <= index)
+			{
+				throw new IndexOutOfBoundsException("index " + index + ", length " + (_end - _start));
+			}
+			return (char) _bytes.get(_start + index);
+		}
+
+		public CharSequence subSequence(int start, int end)
+		{
+			final String decoded = getDecoded();
+			if (null != decoded)
+			{
+				return decoded.subSequence(start, end);
+			}
+			if (0 > start || end > _end - _start || start > end)
+			{
+				throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + (_end - _start));
+			}
+			return new Utf8Sequence(_bytes, _start + start, _start + end);
+		}
+
+		public String toString()
+		{
+			final String decoded = getDecoded();
+			if (null != decoded)
+			{
+				return decoded;
+			}
+			char[] chars = new char[_end - _start];
+			for (int i = 0; i < chars.length; i++)
+			{
+				chars[i] = (char) _bytes.get(_start + i);
+			}
+			return new String(chars);
+		}
+
+		/**
+		 * Returns the decoded span if it is not ASCII, or null if bytes are characters.
+		 */
+		private String getDecoded()
+		{
+			String decoded = _decoded;
+			if (null == decoded)
+			{
+				decoded = ASCII;
+				for (int i = _start; i < _end; i++)
+				{
+					if (0 > _bytes.get(i))
+					{
+						byte[] bytes = new byte[_end - _start];
+						ByteBuffer span = _bytes.duplicate();
+						span.position(_start);
+						span.get(bytes);
+						decoded = new String(bytes, WordNetBinaryArray.GLOSS_CHARSET);
+						break;
+					}
+				}
+				_decoded = decoded;
+			}
+			return ASCII == decoded ? null : decoded;
+		}
+	}
+}
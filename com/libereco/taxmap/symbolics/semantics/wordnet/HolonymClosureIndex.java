@@ -0,0 +1,214 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+
+import com.libereco.taxmap.symbolics.semantics.SemanticsException;
+
+/**
+ * Closure index for member, part and substance holonyms, as JWNL's
+ * getInherited*Holonyms trees define them: a synset is an inherited holonym of another
+ * if a chain of one or more holonym pointers of one type leads to it from that synset
+ * or from one of its hypernyms. Holonym chains do not switch type and do not pass
+ * through the hypernyms of the holonyms on the way.
+ * <p>
+ * For every synset and holonym type the index stores the union of the hypernym
+ * descendant intervals of its transitive meronyms of that type, over the post-order
+ * numbering of the {@link HypernymClosureIndex}. A synset is then an inherited holonym
+ * of another exactly when the post-order number of the other falls into one of those
+ * intervals.
+ *
+ * @author Chiranjit Acharya
+ */
+public class HolonymClosureIndex
+{
+	public static final int MEMBER = 0;
+	public static final int PART = 1;
+	public static final int SUBSTANCE = 2;
+
+	private static final int TYPE_COUNT = 3;
+
+	private final HypernymClosureIndex _hypernymIndex;
+	private final IntervalSetArray _meronymIntervals;
+
+	private HolonymClosureIndex(HypernymClosureIndex hypernymIndex, IntervalSetArray meronymIntervals)
+	{
+		_hypernymIndex = hypernymIndex;
+		_meronymIntervals = meronymIntervals;
+	}
+
+	/**
+	 * Returns the index stored in a compiled graph, or builds it from the pointer rows
+	 * if the graph was compiled without it.
+	 *
+	 * @param array compiled synset graph
+	 * @param hypernymIndex hypernym closure index of the same graph
+	 * @return holonym closure index
+	 * @throws SemanticsException
+	 */
+	public static HolonymClosureIndex load(WordNetBinaryArray array, HypernymClosureIndex hypernymIndex) throws SemanticsException
+	{
+		IntervalSetArray meronymIntervals = null;
+		// the stored intervals refer to the stored post-order numbering
+		if (null != array.getSection(WordNetBinaryArray.SECTION_HYPERNYM_POST_ORDER))
+		{
+			meronymIntervals = IntervalSetArray.load(array, WordNetBinaryArray.SECTION_HOLONYM_INTERVAL_ROWS, WordNetBinaryArray.SECTION_HOLONYM_INTERVALS);
+		}
+		if (null == meronymIntervals)
+		{
+			return build(array, hypernymIndex);
+		}
+		return new HolonymClosureIndex(hypernymIndex, meronymIntervals);
+	}
+
+	/**
+	 * Builds the index from the holonym pointers of a compiled graph.
+	 *
+	 * @param array compiled synset graph
+	 * @param hypernymIndex hypernym closure index of the same graph
+	 * @return holonym closure index
+	 */
+	public static HolonymClosureIndex build(WordNetBinaryArray array, HypernymClosureIndex hypernymIndex)
+	{
+		final int synsetCount = array.getSynsetCount();
+		final int rowCount = synsetCount * TYPE_COUNT;
+
+		// invert the holonym pointers into meronym rows, one per synset and type
+		int[] meronymRows = new int[rowCount + 1];
+		for (int meronym = 0; meronym < synsetCount; meronym++)
+		{
+			final int end = array.getPointerEnd(meronym);
+			for (int i = array.getPointerStart(meronym); i < end; i++)
+			{
+				final int type = getType(array.getPointerType(i));
+				if (0 <= type)
+				{
+					meronymRows[array.getPointerTarget(i) * TYPE_COUNT + type + 1]++;
+				}
+			}
+		}
+		for (int row = 0; row < rowCount; row++)
+		{
+			meronymRows[row + 1] += meronymRows[row];
+		}
+		int[] meronyms = new int[meronymRows[rowCount]];
+		int[] fill = Arrays.copyOf(meronymRows, rowCount);
+		for (int meronym = 0; meronym < synsetCount; meronym++)
+		{
+			final int end = array.getPointerEnd(meronym);
+			for (int i = array.getPointerStart(meronym); i < end; i++)
+			{
+				final int type = getType(array.getPointerType(i));
+				if (0 <= type)
+				{
+					meronyms[fill[array.getPointerTarget(i) * TYPE_COUNT + type]++] = meronym;
+				}
+			}
+		}
+
+		// walk down the meronym chains of every holonym, one type at a time
+		int[][] sets = new int[rowCount][];
+		int[] visits = new int[synsetCount];
+		int[] queue = new int[synsetCount];
+		int[] bounds = new int[64];
+		for (int row = 0; row < rowCount; row++)
+		{
+			final int type = row % TYPE_COUNT;
+			int tail = 0;
+			int length = 0;
+			for (int i = meronymRows[row]; i < meronymRows[row + 1]; i++)
+			{
+				if (row + 1 != visits[meronyms[i]])
+				{
+					visits[meronyms[i]] = row + 1;
+					queue[tail++] = meronyms[i];
+				}
+			}
+			for (int head = 0; head < tail; head++)
+			{
+				final int meronym = queue[head];
+				for (int bound : hypernymIndex.getIntervals(meronym))
+				{
+					if (length == bounds.length)
+					{
+						bounds = Arrays.copyOf(bounds, length * 2);
+					}
+					bounds[length++] = bound;
+				}
+				final int next = meronym * TYPE_COUNT + type;
+				for (int i = meronymRows[next]; i < meronymRows[next + 1]; i++)
+				{
+					if (row + 1 != visits[meronyms[i]])
+					{
+						visits[meronyms[i]] = row + 1;
+						queue[tail++] = meronyms[i];
+					}
+				}
+			}
+			sets[row] = 0 == length ? new int[0] : IntervalSetArray.merge(bounds, length);
+		}
+		return new HolonymClosureIndex(hypernymIndex, new IntervalSetArray(sets));
+	}
+
+	/**
+	 * Adds the index to the sections of a graph being compiled.
+	 */
+	public void writeSections(Map<Integer, ByteBuffer> sections)
+	{
+		_meronymIntervals.writeSections(sections, WordNetBinaryArray.SECTION_HOLONYM_INTERVAL_ROWS, WordNetBinaryArray.SECTION_HOLONYM_INTERVALS);
+	}
+
+	/**
+	 * Checks whether a chain of holonyms of the given type leads to a synset from another
+	 * synset or from one of its hypernyms.
+	 *
+	 * @param type {@link #MEMBER}, {@link #PART} or {@link #SUBSTANCE}
+	 * @param holonym ordinal of the candidate holonym
+	 * @param ordinal ordinal of the synset whose holonyms are probed
+	 * @return true if the first synset is an inherited holonym of the second
+	 */
+	public boolean isInheritedHolonym(int type, int holonym, int ordinal)
+	{
+		return _meronymIntervals.contains(holonym * TYPE_COUNT + type, _hypernymIndex.getPostOrder(ordinal));
+	}
+
+	/**
+	 * Checks whether a synset is an inherited member, part or substance holonym of another.
+	 */
+	public boolean isInheritedHolonym(int holonym, int ordinal)
+	{
+		final int postOrder = _hypernymIndex.getPostOrder(ordinal);
+		for (int type = 0; type < TYPE_COUNT; type++)
+		{
+			if (_meronymIntervals.contains(holonym * TYPE_COUNT + type, postOrder))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int getType(byte pointerType)
+	{
+		switch (pointerType)
+		{
+		case WordNetBinaryArray.MEMBER_HOLONYM:
+			return MEMBER;
+		case WordNetBinaryArray.PART_HOLONYM:
+			return PART;
+		case WordNetBinaryArray.SUBSTANCE_HOLONYM:
+			return SUBSTANCE;
+		default:
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,314 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Map;
+
+import com.libereco.taxmap.symbolics.semantics.SemanticsException;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Reachability index over the hypernym graph of a compiled synset graph.
+ * <p>
+ * Synsets are numbered in post-order over a spanning forest of the hyponym graph,
+ * taking the first hypernym of each synset as its tree parent. Every synset then
+ * carries the set of post-order intervals covering its descendants: its own tree
+ * interval, plus the intervals inherited from hyponyms reached through a second
+ * hypernym. Since WordNet has little multiple inheritance, most synsets carry a single
+ * interval, and an ancestor test is a binary search over a handful of bounds.
+ * Only hypernym pointers are followed, not instance hypernyms, as in JWNL.
+ *
+ * @author Chiranjit Acharya
+ */
+public class HypernymClosureIndex
+{
+	private static final Logger log = Logger.getLogger(HypernymClosureIndex.class);
+
+	private final IntBuffer _postOrder;
+	private final IntervalSetArray _descendants;
+
+	private HypernymClosureIndex(IntBuffer postOrder, IntervalSetArray descendants)
+	{
+		_postOrder = postOrder;
+		_descendants = descendants;
+	}
+
+	/**
+	 * Returns the index stored in a compiled graph, or builds it from the pointer rows
+	 * if the graph was compiled without it.
+	 *
+	 * @param array compiled synset graph
+	 * @return hypernym closure index
+	 * @throws SemanticsException
+	 */
+	public static HypernymClosureIndex load(WordNetBinaryArray array) throws SemanticsException
+	{
+		IntervalSetArray descendants = IntervalSetArray.load(array, WordNetBinaryArray.SECTION_HYPERNYM_INTERVAL_ROWS, WordNetBinaryArray.SECTION_HYPERNYM_INTERVALS);
+		if (null == descendants || null == array.getSection(WordNetBinaryArray.SECTION_HYPERNYM_POST_ORDER))
+		{
+			return build(array);
+		}
+		return new HypernymClosureIndex(array.getIntSection(WordNetBinaryArray.SECTION_HYPERNYM_POST_ORDER), descendants);
+	}
+
+	/**
+	 * Builds the index from the hypernym pointers of a compiled graph.
+	 *
+	 * @param array compiled synset graph
+	 * @return hypernym closure index
+	 */
+	public static HypernymClosureIndex build(WordNetBinaryArray array)
+	{
+		final int synsetCount = array.getSynsetCount();
+		final int[] childRows = new int[synsetCount + 1];
+		final int[] children = getHyponymRows(array, childRows);
+
+		// tree parent: the first hypernym of each synset
+		int[] treeParent = new int[synsetCount];
+		for (int ordinal = 0; ordinal < synsetCount; ordinal++)
+		{
+			treeParent[ordinal] = -1;
+			final int end = array.getPointerEnd(ordinal);
+			for (int i = array.getPointerStart(ordinal); i < end && 0 > treeParent[ordinal]; i++)
+			{
+				if (isHypernym(array.getPointerType(i)))
+				{
+					treeParent[ordinal] = array.getPointerTarget(i);
+				}
+			}
+		}
+
+		// post-order numbering over the spanning forest, low[] holds the first number of each subtree
+		int[] postOrder = new int[synsetCount];
+		int[] low = new int[synsetCount];
+		int[] stack = new int[synsetCount];
+		int[] cursor = new int[synsetCount];
+		boolean[] visited = new boolean[synsetCount];
+		int counter = 0;
+		for (int pass = 0; pass < 2; pass++)
+		{
+			for (int root = 0; root < synsetCount; root++)
+			{
+				// roots first; then synsets left over because their tree parents form a cycle
+				if (visited[root] || (0 == pass && 0 <= treeParent[root]))
+				{
+					continue;
+				}
+				int top = 0;
+				stack[0] = root;
+				cursor[root] = childRows[root];
+				visited[root] = true;
+				low[root] = counter;
+				while (0 <= top)
+				{
+					final int node = stack[top];
+					if (cursor[node] < childRows[node + 1])
+					{
+						final int child = children[cursor[node]++];
+						if (!visited[child] && node == treeParent[child])
+						{
+							visited[child] = true;
+							low[child] = counter;
+							cursor[child] = childRows[child];
+							stack[++top] = child;
+						}
+					}
+					else
+					{
+						postOrder[node] = counter++;
+						top--;
+					}
+				}
+			}
+		}
+
+		// descendant intervals, children before parents
+		int[] order = getTopologicalOrder(synsetCount, childRows, children);
+		int[][] sets = new int[synsetCount][];
+		int[] bounds = new int[16];
+		for (int node : order)
+		{
+			int size = 0;
+			bounds[size++] = low[node];
+			bounds[size++] = postOrder[node];
+			for (int i = childRows[node]; i < childRows[node + 1]; i++)
+			{
+				final int[] childSet = sets[children[i]];
+				if (null != childSet)
+				{
+					if (size + childSet.length > bounds.length)
+					{
+						bounds = Arrays.copyOf(bounds, Math.max(bounds.length * 2, size + childSet.length));
+					}
+					System.arraycopy(childSet, 0, bounds, size, childSet.length);
+					size += childSet.length;
+				}
+			}
+			sets[node] = IntervalSetArray.merge(bounds, size);
+		}
+
+		IntervalSetArray descendants = new IntervalSetArray(sets);
+		if (log.isInfoEnabled())
+		{
+			int multiple = 0;
+			for (int ordinal = 0; ordinal < synsetCount; ordinal++)
+			{
+				if (1 < descendants.getIntervalCount(ordinal))
+				{
+					multiple++;
+				}
+			}
+			log.info("Hypernym closure index built: " + synsetCount + " synsets, " + multiple + " with more than one interval");
+		}
+		return new HypernymClosureIndex(IntBuffer.wrap(postOrder), descendants);
+	}
+
+	/**
+	 * Adds the index to the sections of a graph being compiled.
+	 */
+	public void writeSections(Map<Integer, ByteBuffer> sections)
+	{
+		int[] postOrder = new int[_postOrder.limit()];
+		_postOrder.duplicate().get(postOrder);
+		sections.put(WordNetBinaryArray.SECTION_HYPERNYM_POST_ORDER, WordNetBinaryCompiler.toBuffer(postOrder));
+		_descendants.writeSections(sections, WordNetBinaryArray.SECTION_HYPERNYM_INTERVAL_ROWS, WordNetBinaryArray.SECTION_HYPERNYM_INTERVALS);
+	}
+
+	/**
+	 * Checks whether a synset is a hypernym of another one, at any depth.
+	 *
+	 * @param ancestor ordinal of the candidate hypernym
+	 * @param descendant ordinal of the candidate hyponym
+	 * @return true if the first synset is a proper ancestor of the second
+	 */
+	public boolean isAncestor(int ancestor, int descendant)
+	{
+		return ancestor != descendant && _descendants.contains(ancestor, _postOrder.get(descendant));
+	}
+
+	public boolean isAncestorOrSelf(int ancestor, int descendant)
+	{
+		return ancestor == descendant || _descendants.contains(ancestor, _postOrder.get(descendant));
+	}
+
+	/**
+	 * Returns the post-order number of a synset, the value probed by the interval sets.
+	 */
+	int getPostOrder(int ordinal)
+	{
+		return _postOrder.get(ordinal);
+	}
+
+	/**
+	 * Returns the intervals covering a synset and its hyponyms, as low/high pairs.
+	 */
+	int[] getIntervals(int ordinal)
+	{
+		return _descendants.getRow(ordinal);
+	}
+
+	/**
+	 * Checks whether a pointer type is followed as a hypernym link. Instance hypernyms
+	 * are not, as JWNL's hypernym relationships and trees do not follow them either.
+	 */
+	static boolean isHypernym(byte type)
+	{
+		return WordNetBinaryArray.HYPERNYM == type;
+	}
+
+	/**
+	 * Inverts the hypernym pointers into hyponym rows.
+	 *
+	 * @param array compiled synset graph
+	 * @param rows receives the row starts, one more than the synset count
+	 * @return hyponym ordinals
+	 */
+	static int[] getHyponymRows(WordNetBinaryArray array, int[] rows)
+	{
+		final int synsetCount = array.getSynsetCount();
+		for (int ordinal = 0; ordinal < synsetCount; ordinal++)
+		{
+			final int end = array.getPointerEnd(ordinal);
+			for (int i = array.getPointerStart(ordinal); i < end; i++)
+			{
+				if (isHypernym(array.getPointerType(i)))
+				{
+					rows[array.getPointerTarget(i) + 1]++;
+				}
+			}
+		}
+		for (int ordinal = 0; ordinal < synsetCount; ordinal++)
+		{
+			rows[ordinal + 1] += rows[ordinal];
+		}
+		int[] fill = new int[synsetCount];
+		int[] children = new int[rows[synsetCount]];
+		for (int ordinal = 0; ordinal < synsetCount; ordinal++)
+		{
+			final int end = array.getPointerEnd(ordinal);
+			for (int i = array.getPointerStart(ordinal); i < end; i++)
+			{
+				if (isHypernym(array.getPointerType(i)))
+				{
+					final int parent = array.getPointerTarget(i);
+					children[rows[parent] + fill[parent]++] = ordinal;
+				}
+			}
+		}
+		return children;
+	}
+
+	/**
+	 * Orders synsets so that every synset follows all of its hyponyms. An edge closing a
+	 * cycle, which WordNet should not have, is ignored.
+	 */
+	static int[] getTopologicalOrder(int synsetCount, int[] childRows, int[] children)
+	{
+		int[] order = new int[synsetCount];
+		int[] stack = new int[synsetCount];
+		int[] cursor = new int[synsetCount];
+		boolean[] visited = new boolean[synsetCount];
+		int size = 0;
+		for (int root = 0; root < synsetCount; root++)
+		{
+			if (visited[root])
+			{
+				continue;
+			}
+			int top = 0;
+			stack[0] = root;
+			cursor[root] = childRows[root];
+			visited[root] = true;
+			while (0 <= top)
+			{
+				final int node = stack[top];
+				if (cursor[node] < childRows[node + 1])
+				{
+					final int child = children[cursor[node]++];
+					if (!visited[child])
+					{
+						visited[child] = true;
+						cursor[child] = childRows[child];
+						stack[++top] = child;
+					}
+				}
+				else
+				{
+					order[size++] = node;
+					top--;
+				}
+			}
+		}
+		return order;
+	}
+}
@@ -0,0 +1,393 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import com.libereco.taxmap.symbolics.config.Environment;
+import com.libereco.taxmap.symbolics.config.EnvironmentException;
+import com.libereco.taxmap.symbolics.data.ling.IDenotation;
+import com.libereco.taxmap.symbolics.data.ling.ISense;
+import com.libereco.taxmap.symbolics.data.ling.Sense;
+import com.libereco.taxmap.symbolics.data.map.IRelationInstance;
+import com.libereco.taxmap.symbolics.semantics.*;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Implements a Semantics and Denotation Comparator over a WordNet synset graph
+ * compiled by {@link WordNetBinaryCompiler}. The graph is memory-mapped, so relation
+ * tests walk int arrays instead of loading synsets through JWNL.
+ * <p>
+ * Instances are thread-safe and lock-free once configured: all lookups read an
+ * immutable {@link WordNetSnapshot}, fetched once per call, so element-level
+ * comparison can run on as many threads as there are cores. Reconfiguring swaps the
+ * snapshot atomically; calls under way finish on the one they started with.
+ *
+ * @author Chiranjit Acharya
+ */
+public class InMemoryWordNetBinaryArray extends Environment implements ISemantics, IDenotationComparator
+{
+	private static final Logger log = Logger.getLogger(InMemoryWordNetBinaryArray.class);
+
+	private static final String BINARY_PATH = "WordNetBinaryPath";
+	private static final String LEMMA_PAIR_CACHE_SIZE = "LemmaPairCacheSize";
+
+	private volatile WordNetSnapshot _snapshot = null;
+	// relations of surface form pairs, replaced along with the snapshot
+	private volatile LemmaPairCache _lemmaPairCache = new LemmaPairCache();
+
+	public InMemoryWordNetBinaryArray()
+	{
+	}
+
+	public InMemoryWordNetBinaryArray(WordNetBinaryArray array) throws SemanticsException
+	{
+		_snapshot = new WordNetSnapshot(array);
+	}
+
+	/**
+	 * Creates a comparator over a snapshot, which may be shared with other instances.
+	 */
+	public InMemoryWordNetBinaryArray(WordNetSnapshot snapshot)
+	{
+		_snapshot = snapshot;
+	}
+
+	@Override
+	public boolean setVariables(Properties attributes) throws EnvironmentException
+	{
+		boolean attribFlag = super.setVariables(attributes);
+		if (attribFlag)
+		{
+			if (attributes.containsKey(BINARY_PATH))
+			{
+				try
+				{
+					final String size = attributes.getProperty(LEMMA_PAIR_CACHE_SIZE);
+					_lemmaPairCache = new LemmaPairCache(null == size ? RelationCache.DEFAULT_CAPACITY : Integer.parseInt(size));
+					_snapshot = WordNetSnapshot.map(attributes.getProperty(BINARY_PATH));
+				}
+				catch (SemanticsException e)
+				{
+					final String errorString = e.getClass().getSimpleName() + ": " + e.getMessage();
+					log.error(errorString, e);
+					throw new EnvironmentException(errorString, e);
+				}
+			}
+			else
+			{
+				final String errorString = "WordNet binary array path not found " + BINARY_PATH;
+				log.error(errorString);
+				throw new EnvironmentException(errorString);
+			}
+		}
+		return attribFlag;
+	}
+
+	public WordNetBinaryArray getArray()
+	{
+		return _snapshot.getArray();
+	}
+
+	public WordNetSnapshot getSnapshot()
+	{
+		return _snapshot;
+	}
+
+	// -------------------- SEMANTICS ----------------------------
+
+	public ISynset getISynset(ISense sense) throws SemanticsException
+	{
+		final WordNetBinaryArray array = _snapshot.getArray();
+		final int ordinal = array.getOrdinal(sense.getSensePos(), sense.getSenseId());
+		if (0 > ordinal)
+		{
+			throw new SemanticsException("Incorrect synset id: " + sense);
+		}
+		return new BinarySynonymSet(array, ordinal);
+	}
+
+	public boolean isEqual(String word1, String word2) throws SemanticsException
+	{
+		final WordNetSnapshot snapshot = _snapshot;
+		for (int posIndex = 0; posIndex < WordNetBinaryArray.POS_COUNT; posIndex++)
+		{
+			List<Integer> lemmaList1 = snapshot.getBaseLemmaList(word1, posIndex);
+			if (!lemmaList1.isEmpty())
+			{
+				for (int lemmaId : snapshot.getBaseLemmaList(word2, posIndex))
+				{
+					if (lemmaList1.contains(lemmaId))
+					{
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	public List<ISense> getSenseList(String word) throws SemanticsException
+	{
+		final WordNetSnapshot snapshot = _snapshot;
+		final WordNetBinaryArray array = snapshot.getArray();
+		List<ISense> senseList = new ArrayList<ISense>();
+		for (int posIndex = 0; posIndex < WordNetBinaryArray.POS_COUNT; posIndex++)
+		{
+			for (int lemmaId : snapshot.getBaseLemmaList(word, posIndex))
+			{
+				final int end = array.getSenseEnd(lemmaId, posIndex);
+				for (int i = array.getSenseStart(lemmaId, posIndex); i < end; i++)
+				{
+					final int ordinal = array.getSense(i);
+					senseList.add(new Sense(array.getPosKey(ordinal), array.getOffset(ordinal)));
+				}
+			}
+		}
+		return senseList;
+	}
+
+	public String getBaseForm(String word) throws SemanticsException
+	{
+		final WordNetSnapshot snapshot = _snapshot;
+		for (int posIndex = 0; posIndex < WordNetBinaryArray.POS_COUNT; posIndex++)
+		{
+			List<Integer> lemmaList = snapshot.getBaseLemmaList(word, posIndex);
+			if (!lemmaList.isEmpty())
+			{
+				return snapshot.getArray().getLemma(lemmaList.get(0));
+			}
+		}
+		return word;
+	}
+
+	// -------------------- DENOTATION COMPARATOR ----------------------------
+
+	/**
+	 * Classifies every pair of senses once, most frequent senses first, and returns the
+	 * strongest relation found; equivalence ends the search.
+	 */
+	public char getRelation(List<IDenotation> sourceMeaningList, List<IDenotation> targetMeaningList) throws DenotationException
+	{
+		final WordNetSnapshot snapshot = _snapshot;
+		final IDenotation[] sourceMeanings = RelationMatrix.getFrequencyOrder(sourceMeaningList);
+		final IDenotation[] targetMeanings = RelationMatrix.getFrequencyOrder(targetMeaningList);
+		char strongest = IRelationInstance.IDK;
+		for (IDenotation sourceMeaning : sourceMeanings)
+		{
+			for (IDenotation targetMeaning : targetMeanings)
+			{
+				final char relation = getSenseRelation(snapshot, sourceMeaning, targetMeaning);
+				if (IRelationInstance.EQUIVALENCE == relation)
+				{
+					return relation;
+				}
+				strongest = RelationMatrix.getStronger(strongest, relation);
+			}
+		}
+		return strongest;
+	}
+
+	/**
+	 * Returns the strongest relation between the senses of two surface forms, each
+	 * restricted to some parts of speech. Pairs are cached on the lowercased forms, so a
+	 * repeated pair skips both the lemma lookups and the sense-pair loop.
+	 *
+	 * @param sourceExpression source surface form
+	 * @param sourcePositions part of speech keys the source senses may have, or null for all
+	 * @param targetExpression target surface form
+	 * @param targetPositions part of speech keys the target senses may have, or null for all
+	 * @return relation between the two sense lists
+	 * @throws DenotationException
+	 */
+	public char getRelation(String sourceExpression, String sourcePositions, String targetExpression, String targetPositions) throws DenotationException
+	{
+		final LemmaPairCache lemmaPairCache = _lemmaPairCache;
+		final String source = normalizeSurfaceForm(sourceExpression);
+		final String target = normalizeSurfaceForm(targetExpression);
+		final int sourceMask = LemmaPairCache.toPositionMask(sourcePositions);
+		final int targetMask = LemmaPairCache.toPositionMask(targetPositions);
+		final long lemmaDuplet = lemmaPairCache.toKey(source, sourceMask, target, targetMask);
+		char relationSymbol = LemmaPairCache.NO_KEY == lemmaDuplet ? RelationCache.NOT_FOUND : lemmaPairCache.get(lemmaDuplet);
+
+		if (RelationCache.NOT_FOUND == relationSymbol)
+		{
+			final WordNetSnapshot snapshot = _snapshot;
+			relationSymbol = getRelation(snapshot, getOrdinals(snapshot, source, sourceMask), getOrdinals(snapshot, target, targetMask));
+			if (LemmaPairCache.NO_KEY != lemmaDuplet)
+			{
+				lemmaPairCache.put(lemmaDuplet, relationSymbol);
+			}
+		}
+		return relationSymbol;
+	}
+
+	public LemmaPairCache getLemmaPairCache()
+	{
+		return _lemmaPairCache;
+	}
+
+	private static String normalizeSurfaceForm(String expression)
+	{
+		return expression.trim().toLowerCase().replace(' ', '_');
+	}
+
+	/**
+	 * Returns the ordinals of the senses of a surface form in the parts of speech of a
+	 * mask, most frequent senses of each base form first.
+	 */
+	private static List<Integer> getOrdinals(WordNetSnapshot snapshot, String surfaceForm, int positionMask)
+	{
+		final WordNetBinaryArray array = snapshot.getArray();
+		List<Integer> ordinalList = new ArrayList<Integer>();
+		for (int posIndex = 0; posIndex < WordNetBinaryArray.POS_COUNT; posIndex++)
+		{
+			if (0 == (positionMask & (1 << posIndex)))
+			{
+				continue;
+			}
+			for (int lemmaId : snapshot.getBaseLemmaList(surfaceForm, posIndex))
+			{
+				final int end = array.getSenseEnd(lemmaId, posIndex);
+				for (int i = array.getSenseStart(lemmaId, posIndex); i < end; i++)
+				{
+					final Integer ordinal = array.getSense(i);
+					if (!ordinalList.contains(ordinal))
+					{
+						ordinalList.add(ordinal);
+					}
+				}
+			}
+		}
+		return ordinalList;
+	}
+
+	/**
+	 * Returns the strongest relation between any pair of synsets; equivalence ends the search.
+	 */
+	private static char getRelation(WordNetSnapshot snapshot, List<Integer> sourceOrdinals, List<Integer> targetOrdinals)
+	{
+		char strongest = IRelationInstance.IDK;
+		for (int source : sourceOrdinals)
+		{
+			for (int target : targetOrdinals)
+			{
+				final char relation = snapshot.getRelation(source, target);
+				if (IRelationInstance.EQUIVALENCE == relation)
+				{
+					return relation;
+				}
+				strongest = RelationMatrix.getStronger(strongest, relation);
+			}
+		}
+		return strongest;
+	}
+
+	public char[] getRelationMatrix(List<List<IDenotation>> sourceMeaningLists, List<List<IDenotation>> targetMeaningLists) throws DenotationException
+	{
+		final WordNetSnapshot snapshot = _snapshot;
+		return RelationMatrix.compute(sourceMeaningLists, targetMeaningLists, new RelationMatrix.SenseRelation()
+		{
+			public char getRelation(IDenotation sourceMeaning, IDenotation targetMeaning) throws DenotationException
+			{
+				return getSenseRelation(snapshot, sourceMeaning, targetMeaning);
+			}
+		});
+	}
+
+	/**
+	 * Returns the first relation getRelation would find between two senses, or IDK.
+	 */
+	char getSenseRelation(IDenotation sourceMeaning, IDenotation targetMeaning) throws DenotationException
+	{
+		return getSenseRelation(_snapshot, sourceMeaning, targetMeaning);
+	}
+
+	private static char getSenseRelation(WordNetSnapshot snapshot, IDenotation sourceMeaning, IDenotation targetMeaning) throws DenotationException
+	{
+		if (sourceMeaning.equals(targetMeaning))
+		{
+			return IRelationInstance.EQUIVALENCE;
+		}
+		return snapshot.getRelation(getOrdinal(snapshot, sourceMeaning), getOrdinal(snapshot, targetMeaning));
+	}
+
+	public boolean isSourceGreaterThanTarget(IDenotation sourceMeaning, IDenotation targetMeaning) throws DenotationException
+	{
+		return isMoreGeneral(_snapshot, sourceMeaning, targetMeaning);
+	}
+
+	public boolean isSourceLesserThanTarget(IDenotation sourceMeaning, IDenotation targetMeaning) throws DenotationException
+	{
+		return isMoreGeneral(_snapshot, targetMeaning, sourceMeaning);
+	}
+
+	public boolean isSourceEquivalentToTarget(IDenotation sourceMeaning, IDenotation targetMeaning) throws DenotationException
+	{
+		return isEquivalent(_snapshot, sourceMeaning, targetMeaning);
+	}
+
+	public boolean isSourceOrthogonalToTarget(IDenotation sourceMeaning, IDenotation targetMeaning) throws DenotationException
+	{
+		return isOrthogonal(_snapshot, sourceMeaning, targetMeaning);
+	}
+
+	private static boolean isMoreGeneral(WordNetSnapshot snapshot, IDenotation sourceMeaning, IDenotation targetMeaning) throws DenotationException
+	{
+		if (!isHierarchical(sourceMeaning, targetMeaning) || sourceMeaning.equals(targetMeaning))
+		{
+			return false;
+		}
+		return snapshot.isMoreGeneral(getOrdinal(snapshot, sourceMeaning), getOrdinal(snapshot, targetMeaning));
+	}
+
+	private static boolean isEquivalent(WordNetSnapshot snapshot, IDenotation sourceMeaning, IDenotation targetMeaning) throws DenotationException
+	{
+		if (sourceMeaning.equals(targetMeaning))
+		{
+			return true;
+		}
+		return snapshot.isSynonym(getOrdinal(snapshot, sourceMeaning), getOrdinal(snapshot, targetMeaning));
+	}
+
+	private static boolean isOrthogonal(WordNetSnapshot snapshot, IDenotation sourceMeaning, IDenotation targetMeaning) throws DenotationException
+	{
+		if (sourceMeaning.equals(targetMeaning) || ('n' == sourceMeaning.getPosition() && 'n' == targetMeaning.getPosition()))
+		{
+			return false;
+		}
+		return snapshot.isAntonym(getOrdinal(snapshot, sourceMeaning), getOrdinal(snapshot, targetMeaning));
+	}
+
+	/**
+	 * Hypernymy and holonymy are only compared within nouns or within verbs.
+	 */
+	private static boolean isHierarchical(IDenotation sourceMeaning, IDenotation targetMeaning)
+	{
+		return ('n' == sourceMeaning.getPosition() && 'n' == targetMeaning.getPosition()) || ('v' == sourceMeaning.getPosition() && 'v' == targetMeaning.getPosition());
+	}
+
+	/**
+	 * Returns the synset ordinal of a meaning.
+	 */
+	private static int getOrdinal(WordNetSnapshot snapshot, IDenotation meaning) throws DenotationException
+	{
+		final int ordinal = snapshot.getArray().getOrdinal(meaning.getPosition(), meaning.getId());
+		if (0 > ordinal)
+		{
+			final String errorString = "Incorrect synset id: " + meaning;
+			log.error(errorString);
+			throw new DenotationException(errorString);
+		}
+		return ordinal;
+	}
+}
@@ -0,0 +1,167 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Map;
+
+import com.libereco.taxmap.symbolics.semantics.SemanticsException;
+
+/**
+ * One sorted set of disjoint closed intervals per synset ordinal, stored in
+ * compressed sparse row form: row i spans the bounds from rows[i] to rows[i + 1],
+ * each interval taking a low and a high bound.
+ *
+ * @author Chiranjit Acharya
+ */
+class IntervalSetArray
+{
+	private final IntBuffer _rows;
+	private final IntBuffer _bounds;
+
+	IntervalSetArray(IntBuffer rows, IntBuffer bounds)
+	{
+		_rows = rows;
+		_bounds = bounds;
+	}
+
+	/**
+	 * Builds the array from merged interval sets.
+	 *
+	 * @param sets interval sets as low/high pairs, indexed by ordinal
+	 */
+	IntervalSetArray(int[][] sets)
+	{
+		int[] rows = new int[sets.length + 1];
+		int size = 0;
+		for (int i = 0; i < sets.length; i++)
+		{
+			rows[i] = size;
+			size += sets[i].length;
+		}
+		rows[sets.length] = size;
+		int[] bounds = new int[size];
+		for (int i = 0; i < sets.length; i++)
+		{
+			System.arraycopy(sets[i], 0, bounds, rows[i], sets[i].length);
+		}
+		_rows = IntBuffer.wrap(rows);
+		_bounds = IntBuffer.wrap(bounds);
+	}
+
+	/**
+	 * Loads the array from two sections of a compiled graph.
+	 *
+	 * @return the array, or null if the graph does not contain the sections
+	 */
+	static IntervalSetArray load(WordNetBinaryArray array, int rowSection, int boundSection) throws SemanticsException
+	{
+		if (null == array.getSection(rowSection) || null == array.getSection(boundSection))
+		{
+			return null;
+		}
+		return new IntervalSetArray(array.getIntSection(rowSection), array.getIntSection(boundSection));
+	}
+
+	void writeSections(Map<Integer, ByteBuffer> sections, int rowSection, int boundSection)
+	{
+		sections.put(rowSection, WordNetBinaryCompiler.toBuffer(toArray(_rows)));
+		sections.put(boundSection, WordNetBinaryCompiler.toBuffer(toArray(_bounds)));
+	}
+
+	int getIntervalCount(int row)
+	{
+		return (_rows.get(row + 1) - _rows.get(row)) / 2;
+	}
+
+	/**
+	 * Returns the intervals of a row as low/high pairs.
+	 */
+	int[] getRow(int row)
+	{
+		final int start = _rows.get(row);
+		int[] bounds = new int[_rows.get(row + 1) - start];
+		for (int i = 0; i < bounds.length; i++)
+		{
+			bounds[i] = _bounds.get(start + i);
+		}
+		return bounds;
+	}
+
+	/**
+	 * Checks whether a value lies in one of the intervals of a row, by binary search.
+	 */
+	boolean contains(int row, int value)
+	{
+		int low = _rows.get(row) / 2;
+		int high = _rows.get(row + 1) / 2 - 1;
+		while (low <= high)
+		{
+			final int middle = (low + high) >>> 1;
+			if (_bounds.get(2 * middle + 1) < value)
+			{
+				low = middle + 1;
+			}
+			else if (_bounds.get(2 * middle) > value)
+			{
+				high = middle - 1;
+			}
+			else
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Merges intervals given as low/high pairs into a sorted set of disjoint intervals,
+	 * coalescing overlapping and adjacent ones.
+	 *
+	 * @param bounds low/high pairs
+	 * @param length number of bounds used
+	 * @return merged low/high pairs
+	 */
+	static int[] merge(int[] bounds, int length)
+	{
+		final int count = length / 2;
+		long[] intervals = new long[count];
+		for (int i = 0; i < count; i++)
+		{
+			intervals[i] = ((long) bounds[2 * i] << 32) | (bounds[2 * i + 1] & 0xFFFFFFFFL);
+		}
+		Arrays.sort(intervals);
+		int[] merged = new int[length];
+		int size = 0;
+		for (long interval : intervals)
+		{
+			final int low = (int) (interval >>> 32);
+			final int high = (int) interval;
+			if (0 < size && low <= merged[size - 1] + 1)
+			{
+				merged[size - 1] = Math.max(merged[size - 1], high);
+			}
+			else
+			{
+				merged[size++] = low;
+				merged[size++] = high;
+			}
+		}
+		return Arrays.copyOf(merged, size);
+	}
+
+	private static int[] toArray(IntBuffer buffer)
+	{
+		int[] values = new int[buffer.limit()];
+		buffer.duplicate().get(values);
+		return values;
+	}
+}
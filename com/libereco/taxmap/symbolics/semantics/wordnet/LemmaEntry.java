@@ -0,0 +1,132 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.libereco.taxmap.symbolics.data.ling.Denotation;
+import com.libereco.taxmap.symbolics.data.ling.IDenotation;
+import com.libereco.taxmap.symbolics.data.ling.SenseIdCodec;
+
+/**
+ * Immutable result of looking up a surface form in WordNet: the lemma of each index
+ * word found, and the senses of all of them packed by {@link SenseIdCodec}.
+ *
+ * @author Chiranjit Acharya
+ */
+public final class LemmaEntry
+{
+	/**
+	 * Entry of a surface form WordNet does not know.
+	 */
+	public static final LemmaEntry EMPTY = new LemmaEntry(new char[0], new String[0], new long[0]);
+
+	private final char[] _lemmaPositions;
+	private final String[] _lemmas;
+	// packed by SenseIdCodec
+	private final long[] _senses;
+
+	LemmaEntry(char[] lemmaPositions, String[] lemmas, long[] senses)
+	{
+		_lemmaPositions = lemmaPositions;
+		_lemmas = lemmas;
+		_senses = senses;
+	}
+
+	/**
+	 * Returns the first lemma found, or null if there is none.
+	 */
+	public String getLemma()
+	{
+		for (String lemma : _lemmas)
+		{
+			if (null != lemma)
+			{
+				return lemma;
+			}
+		}
+		return null;
+	}
+
+	public int getLemmaCount()
+	{
+		return _lemmas.length;
+	}
+
+	public String getLemma(int index)
+	{
+		return _lemmas[index];
+	}
+
+	public char getLemmaPosition(int index)
+	{
+		return _lemmaPositions[index];
+	}
+
+	/**
+	 * Checks whether two entries share an index word, that is a lemma with the same
+	 * part of speech.
+	 */
+	public boolean sharesIndexWord(LemmaEntry that)
+	{
+		for (int i = 0; i < _lemmas.length; i++)
+		{
+			for (int j = 0; j < that._lemmas.length; j++)
+			{
+				if (_lemmaPositions[i] == that._lemmaPositions[j] && null != _lemmas[i] && _lemmas[i].equals(that._lemmas[j]))
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	public boolean isEmpty()
+	{
+		return 0 == _lemmas.length;
+	}
+
+	/**
+	 * Returns the senses of the entry packed by {@link SenseIdCodec}.
+	 */
+	public long[] getSenseIds()
+	{
+		return _senses.clone();
+	}
+
+	public int getSenseCount()
+	{
+		return _senses.length;
+	}
+
+	public char getSensePosition(int index)
+	{
+		return SenseIdCodec.getPos(_senses[index]);
+	}
+
+	public long getSenseOffset(int index)
+	{
+		return SenseIdCodec.getOffset(_senses[index]);
+	}
+
+	/**
+	 * Returns a new list with the senses of the entry.
+	 */
+	public List<IDenotation> getDenotationList()
+	{
+		List<IDenotation> meaningList = new ArrayList<IDenotation>(_senses.length);
+		for (int i = 0; i < _senses.length; i++)
+		{
+			meaningList.add(new Denotation(getSensePosition(i), getSenseOffset(i)));
+		}
+		return meaningList;
+	}
+}
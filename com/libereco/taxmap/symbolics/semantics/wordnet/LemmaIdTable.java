@@ -0,0 +1,86 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dense ids of lemmas, handed out the first time each lemma is seen, for packing lemma
+ * pairs into primitive cache keys.
+ * <p>
+ * Ids are never taken back, as they live on in the keys built from them, so the number
+ * of lemmas is capped; once the cap is reached, lemmas not seen before get no id.
+ * Looking up a lemma that has an id allocates nothing.
+ *
+ * @author Chiranjit Acharya
+ */
+public class LemmaIdTable
+{
+	public static final int DEFAULT_LIMIT = 1 << 20;
+
+	private final ConcurrentHashMap<String, Integer> _ids = new ConcurrentHashMap<String, Integer>();
+	private final AtomicInteger _nextId = new AtomicInteger();
+	private final int _limit;
+
+	/**
+	 * @param limit maximum number of lemmas given an id
+	 */
+	public LemmaIdTable(int limit)
+	{
+		if (0 >= limit)
+		{
+			throw new IllegalArgumentException("Illegal lemma limit " + limit);
+		}
+		_limit = limit;
+	}
+
+	public LemmaIdTable()
+	{
+		this(DEFAULT_LIMIT);
+	}
+
+	/**
+	 * Returns the id of a lemma, giving it one if it has none yet.
+	 *
+	 * @param lemma normalized lemma
+	 * @return id in [0, limit), or -1 if the lemma is new once the limit is reached
+	 */
+	public int intern(String lemma)
+	{
+		Integer id = _ids.get(lemma);
+		if (null != id)
+		{
+			return id;
+		}
+		if (_limit <= _nextId.get())
+		{
+			return -1;
+		}
+		final int nextId = _nextId.getAndIncrement();
+		if (_limit <= nextId)
+		{
+			_nextId.set(_limit);
+			return -1;
+		}
+		final Integer newId = nextId;
+		id = _ids.putIfAbsent(lemma, newId);
+		return null == id ? newId : id;
+	}
+
+	public int size()
+	{
+		return _ids.size();
+	}
+
+	public int getLimit()
+	{
+		return _limit;
+	}
+}
@@ -0,0 +1,187 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+/**
+ * Bounded cache of relations between pairs of lemmas, each restricted to a set of
+ * parts of speech, in front of the sense-pair loop.
+ * <p>
+ * Lemmas are interned into dense ids by a {@link LemmaIdTable}, and a pair is keyed on
+ * both ids and both part of speech masks packed into one long, so the relations can
+ * live in a {@link RelationCache} and a repeated pair costs two map lookups. Pairs with
+ * a lemma seen after the table's limit is reached are not cached.
+ *
+ * @author Chiranjit Acharya
+ */
+public class LemmaPairCache
+{
+	/**
+	 * Returned by {@link #toKey} for pairs that cannot be packed into a key.
+	 */
+	public static final long NO_KEY = RelationCache.NO_KEY;
+
+	/**
+	 * Part of speech mask allowing every part of speech.
+	 */
+	public static final int ANY_POSITION = (1 << WordNetBinaryArray.POS_COUNT) - 1;
+
+	public static final int DEFAULT_LEMMA_LIMIT = LemmaIdTable.DEFAULT_LIMIT;
+
+	// lemma ids take 27 bits of a key half, the part of speech mask the other 4
+	private static final int MAX_LEMMAS = 1 << 27;
+	private static final int MASK_BITS = 4;
+
+	private final LemmaIdTable _lemmaIds;
+	private final RelationCache _relations;
+
+	/**
+	 * Creates a cache holding at most about the given number of relations, between at
+	 * most the given number of distinct lemmas.
+	 *
+	 * @param capacity maximum number of cached relations
+	 * @param lemmaLimit maximum number of interned lemmas
+	 */
+	public LemmaPairCache(int capacity, int lemmaLimit)
+	{
+		if (MAX_LEMMAS < lemmaLimit)
+		{
+			throw new IllegalArgumentException("Illegal lemma limit " + lemmaLimit);
+		}
+		_relations = new RelationCache(capacity);
+		_lemmaIds = new LemmaIdTable(lemmaLimit);
+	}
+
+	public LemmaPairCache(int capacity)
+	{
+		this(capacity, DEFAULT_LEMMA_LIMIT);
+	}
+
+	public LemmaPairCache()
+	{
+		this(RelationCache.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Returns the mask of a set of parts of speech.
+	 *
+	 * @param positions part of speech keys, or null for every part of speech
+	 * @return mask, {@link #ANY_POSITION} if no known key is given
+	 */
+	public static int toPositionMask(String positions)
+	{
+		int mask = 0;
+		if (null != positions)
+		{
+			for (int i = 0; i < positions.length(); i++)
+			{
+				final int posIndex = WordNetBinaryArray.getPosIndex(positions.charAt(i));
+				if (0 <= posIndex)
+				{
+					mask |= 1 << posIndex;
+				}
+			}
+		}
+		return 0 == mask ? ANY_POSITION : mask;
+	}
+
+	/**
+	 * Checks whether a part of speech key is in a mask.
+	 */
+	public static boolean allows(int positionMask, char position)
+	{
+		final int posIndex = WordNetBinaryArray.getPosIndex(position);
+		return 0 <= posIndex && 0 != (positionMask & (1 << posIndex));
+	}
+
+	/**
+	 * Packs an ordered pair of lemmas with their part of speech masks into a cache key,
+	 * interning lemmas not seen before.
+	 *
+	 * @param source normalized source lemma
+	 * @param sourceMask part of speech mask of the source
+	 * @param target normalized target lemma
+	 * @param targetMask part of speech mask of the target
+	 * @return cache key, or {@link #NO_KEY} if a lemma is new once the lemma limit is reached
+	 */
+	public long toKey(String source, int sourceMask, String target, int targetMask)
+	{
+		final int sourceId = _lemmaIds.intern(source);
+		final int targetId = _lemmaIds.intern(target);
+		if (0 > sourceId || 0 > targetId)
+		{
+			return NO_KEY;
+		}
+		return ((long) ((sourceId << MASK_BITS) | sourceMask) << 32) | ((targetId << MASK_BITS) | targetMask);
+	}
+
+	/**
+	 * Returns the cached relation for a key.
+	 *
+	 * @param key key made by {@link #toKey}
+	 * @return relation, or {@link RelationCache#NOT_FOUND}
+	 */
+	public char get(long key)
+	{
+		return _relations.get(key);
+	}
+
+	/**
+	 * Caches a relation.
+	 *
+	 * @param key key made by {@link #toKey}
+	 * @param relation relation symbol
+	 */
+	public void put(long key, char relation)
+	{
+		_relations.put(key, relation);
+	}
+
+	public int getLemmaCount()
+	{
+		return _lemmaIds.size();
+	}
+
+	public int getLemmaLimit()
+	{
+		return _lemmaIds.getLimit();
+	}
+
+	public long getHitCount()
+	{
+		return _relations.getHitCount();
+	}
+
+	public long getMissCount()
+	{
+		return _relations.getMissCount();
+	}
+
+	public int size()
+	{
+		return _relations.size();
+	}
+
+	public int getCapacity()
+	{
+		return _relations.getCapacity();
+	}
+
+	/**
+	 * Drops the cached relations. Lemma ids stay interned.
+	 */
+	public void clear()
+	{
+		_relations.clear();
+	}
+
+	public String toString()
+	{
+		return "LemmaPairCache[lemmas=" + getLemmaCount() + "/" + getLemmaLimit() + ", size=" + size() + ", capacity=" + getCapacity() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + "]";
+	}
+}
@@ -0,0 +1,643 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Index over the lemmas of one part of speech for prefix, suffix, containment,
+ * wildcard and regular expression queries.
+ * <p>
+ * Lemmas are kept sorted, so the lemmas with a given prefix form one range found by
+ * binary search; a second sorted array of reversed lemmas does the same for suffixes.
+ * A trigram inverted index narrows containment and wildcard queries to the lemmas
+ * holding every trigram of their literal parts. Candidates are verified in lemma order
+ * and the search stops after the requested number of results. Anagrams are found with
+ * one probe of a map from sorted-letter signatures to lemma ids, and lemmas that sound
+ * alike with a binary search over their packed Soundex codes.
+ *
+ * @author Chiranjit Acharya
+ */
+public class LemmaPatternIndex
+{
+	private static final int GRAM = 3;
+
+	private static final String REGEX_META = ".[]{}()*+?^$|\\";
+
+	// Soundex digit of each letter a to z: 0 for vowels, - for h and w
+	private static final String SOUNDEX_DIGITS = "0123012-02245501262301-202";
+
+	private final String[] _lemmas;
+	private final String[] _reversed;
+	private final int[] _reversedIds;
+
+	// trigram postings in compressed sparse row form, keys sorted
+	private final long[] _gramKeys;
+	private final int[] _gramRows;
+	private final int[] _postings;
+
+	// lemma ids by sorted-letter signature, built on the first anagram query
+	private Map<String, int[]> _anagrams;
+
+	// lemma ids by Soundex code in compressed sparse row form, codes sorted; built on
+	// the first sounds-like query
+	private int[] _soundexCodes;
+	private int[] _soundexRows;
+	private int[] _soundexIds;
+
+	/**
+	 * Builds the index.
+	 *
+	 * @param lemmas lemmas of one part of speech, in any order and possibly repeated
+	 */
+	public LemmaPatternIndex(Collection<String> lemmas)
+	{
+		String[] sorted = lemmas.toArray(new String[lemmas.size()]);
+		Arrays.sort(sorted);
+		int size = 0;
+		for (int i = 0; i < sorted.length; i++)
+		{
+			if (0 == size || !sorted[i].equals(sorted[size - 1]))
+			{
+				sorted[size++] = sorted[i];
+			}
+		}
+		_lemmas = Arrays.copyOf(sorted, size);
+
+		final String[] reversed = new String[size];
+		Integer[] reversedOrder = new Integer[size];
+		for (int id = 0; id < size; id++)
+		{
+			reversed[id] = new StringBuilder(_lemmas[id]).reverse().toString();
+			reversedOrder[id] = id;
+		}
+		Arrays.sort(reversedOrder, new Comparator<Integer>()
+		{
+			public int compare(Integer id1, Integer id2)
+			{
+				return reversed[id1].compareTo(reversed[id2]);
+			}
+		});
+		_reversed = new String[size];
+		_reversedIds = new int[size];
+		for (int i = 0; i < size; i++)
+		{
+			_reversedIds[i] = reversedOrder[i];
+			_reversed[i] = reversed[_reversedIds[i]];
+		}
+
+		Map<Long, WordNetBinaryCompiler.IntList> postings = new HashMap<Long, WordNetBinaryCompiler.IntList>();
+		for (int id = 0; id < size; id++)
+		{
+			final String lemma = _lemmas[id];
+			for (int i = 0; i + GRAM <= lemma.length(); i++)
+			{
+				final Long key = toGramKey(lemma, i);
+				WordNetBinaryCompiler.IntList list = postings.get(key);
+				if (null == list)
+				{
+					list = new WordNetBinaryCompiler.IntList();
+					postings.put(key, list);
+				}
+				// ids arrive in order, so a repeated trigram only needs comparing with the last one
+				if (0 == list.size() || id != list.get(list.size() - 1))
+				{
+					list.add(id);
+				}
+			}
+		}
+		_gramKeys = new long[postings.size()];
+		int k = 0;
+		for (Long key : postings.keySet())
+		{
+			_gramKeys[k++] = key;
+		}
+		Arrays.sort(_gramKeys);
+		_gramRows = new int[_gramKeys.length + 1];
+		int postingCount = 0;
+		for (int i = 0; i < _gramKeys.length; i++)
+		{
+			_gramRows[i] = postingCount;
+			postingCount += postings.get(_gramKeys[i]).size();
+		}
+		_gramRows[_gramKeys.length] = postingCount;
+		_postings = new int[postingCount];
+		for (int i = 0; i < _gramKeys.length; i++)
+		{
+			System.arraycopy(postings.get(_gramKeys[i]).toArray(), 0, _postings, _gramRows[i], _gramRows[i + 1] - _gramRows[i]);
+		}
+	}
+
+	public int size()
+	{
+		return _lemmas.length;
+	}
+
+	public String getLemma(int id)
+	{
+		return _lemmas[id];
+	}
+
+	/**
+	 * Returns the id of a lemma, or -1 if it is not indexed.
+	 */
+	public int indexOf(String lemma)
+	{
+		final int id = Arrays.binarySearch(_lemmas, lemma);
+		return 0 > id ? -1 : id;
+	}
+
+	/**
+	 * Returns up to maxResults lemmas starting with a prefix, in lemma order.
+	 */
+	public List<String> getStartsWith(String prefix, int maxResults)
+	{
+		List<String> result = new ArrayList<String>();
+		final int high = upperBound(_lemmas, prefix);
+		for (int id = lowerBound(_lemmas, prefix); id < high && result.size() < maxResults; id++)
+		{
+			result.add(_lemmas[id]);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns up to maxResults lemmas ending with a suffix, in lemma order.
+	 */
+	public List<String> getEndsWith(String suffix, int maxResults)
+	{
+		final String reversedSuffix = new StringBuilder(suffix).reverse().toString();
+		final int low = lowerBound(_reversed, reversedSuffix);
+		int[] ids = Arrays.copyOfRange(_reversedIds, low, upperBound(_reversed, reversedSuffix));
+		Arrays.sort(ids);
+		List<String> result = new ArrayList<String>();
+		for (int i = 0; i < ids.length && result.size() < maxResults; i++)
+		{
+			result.add(_lemmas[ids[i]]);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns up to maxResults lemmas containing a string, in lemma order.
+	 */
+	public List<String> getContaining(String infix, int maxResults)
+	{
+		List<String> result = new ArrayList<String>();
+		final int[] candidates = getGramCandidates(new String[] { infix });
+		final int count = null == candidates ? _lemmas.length : candidates.length;
+		for (int i = 0; i < count && result.size() < maxResults; i++)
+		{
+			final String lemma = _lemmas[null == candidates ? i : candidates[i]];
+			if (lemma.contains(infix))
+			{
+				result.add(lemma);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns up to maxResults lemmas made of the same letters as a word, other than the
+	 * word itself, in lemma order.
+	 */
+	public List<String> getAnagrams(String word, int maxResults)
+	{
+		List<String> result = new ArrayList<String>();
+		final int[] ids = getAnagramIndex().get(getSignature(word));
+		for (int i = 0; null != ids && i < ids.length && result.size() < maxResults; i++)
+		{
+			if (!_lemmas[ids[i]].equals(word))
+			{
+				result.add(_lemmas[ids[i]]);
+			}
+		}
+		return result;
+	}
+
+	private synchronized Map<String, int[]> getAnagramIndex()
+	{
+		if (null == _anagrams)
+		{
+			Map<String, WordNetBinaryCompiler.IntList> lists = new HashMap<String, WordNetBinaryCompiler.IntList>();
+			for (int id = 0; id < _lemmas.length; id++)
+			{
+				final String signature = getSignature(_lemmas[id]);
+				WordNetBinaryCompiler.IntList list = lists.get(signature);
+				if (null == list)
+				{
+					list = new WordNetBinaryCompiler.IntList();
+					lists.put(signature, list);
+				}
+				list.add(id);
+			}
+			Map<String, int[]> anagrams = new HashMap<String, int[]>(lists.size() * 4 / 3 + 1);
+			for (Map.Entry<String, WordNetBinaryCompiler.IntList> entry : lists.entrySet())
+			{
+				anagrams.put(entry.getKey(), entry.getValue().toArray());
+			}
+			_anagrams = anagrams;
+		}
+		return _anagrams;
+	}
+
+	private static String getSignature(String word)
+	{
+		char[] letters = word.toCharArray();
+		Arrays.sort(letters);
+		return new String(letters);
+	}
+
+	/**
+	 * Returns up to maxResults lemmas with the same Soundex code as a word, other than
+	 * the word itself, in lemma order.
+	 */
+	public List<String> getSoundsLike(String word, int maxResults)
+	{
+		return getSoundsLike(word, maxResults, 0);
+	}
+
+	/**
+	 * Returns up to maxResults lemmas whose Soundex code is within an edit distance of
+	 * the code of a word, other than the word itself: the closest codes first, lemma
+	 * order within a code.
+	 *
+	 * @param word word to sound like
+	 * @param maxResults maximum number of lemmas returned
+	 * @param maxDistance maximum edit distance between the Soundex codes
+	 */
+	public List<String> getSoundsLike(String word, int maxResults, int maxDistance)
+	{
+		List<String> result = new ArrayList<String>();
+		final int code = getSoundex(word);
+		if (0 == code)
+		{
+			return result;
+		}
+		buildSoundexIndex();
+		final int[] rows = getSoundexRows(code, maxDistance);
+		for (int i = 0; i < rows.length && result.size() < maxResults; i++)
+		{
+			for (int k = _soundexRows[rows[i]]; k < _soundexRows[rows[i] + 1] && result.size() < maxResults; k++)
+			{
+				if (!_lemmas[_soundexIds[k]].equals(word))
+				{
+					result.add(_lemmas[_soundexIds[k]]);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the rows of the codes within an edit distance of a code, closest first.
+	 */
+	private int[] getSoundexRows(int code, int maxDistance)
+	{
+		if (0 == maxDistance)
+		{
+			final int row = Arrays.binarySearch(_soundexCodes, code);
+			return 0 > row ? new int[0] : new int[] { row };
+		}
+		// distance in the high bits, row in the low ones
+		long[] rows = new long[_soundexCodes.length];
+		int size = 0;
+		for (int row = 0; row < _soundexCodes.length; row++)
+		{
+			final int distance = getCodeDistance(code, _soundexCodes[row]);
+			if (distance <= maxDistance)
+			{
+				rows[size++] = ((long) distance << 32) | row;
+			}
+		}
+		Arrays.sort(rows, 0, size);
+		int[] result = new int[size];
+		for (int i = 0; i < size; i++)
+		{
+			result[i] = (int) rows[i];
+		}
+		return result;
+	}
+
+	private synchronized void buildSoundexIndex()
+	{
+		if (null != _soundexCodes)
+		{
+			return;
+		}
+		// code in the high bits, lemma id in the low ones
+		long[] entries = new long[_lemmas.length];
+		int size = 0;
+		for (int id = 0; id < _lemmas.length; id++)
+		{
+			final int code = getSoundex(_lemmas[id]);
+			if (0 != code)
+			{
+				entries[size++] = ((long) code << 32) | id;
+			}
+		}
+		Arrays.sort(entries, 0, size);
+		WordNetBinaryCompiler.IntList codes = new WordNetBinaryCompiler.IntList();
+		WordNetBinaryCompiler.IntList rows = new WordNetBinaryCompiler.IntList();
+		int[] ids = new int[size];
+		for (int i = 0; i < size; i++)
+		{
+			final int code = (int) (entries[i] >>> 32);
+			if (0 == codes.size() || code != codes.get(codes.size() - 1))
+			{
+				codes.add(code);
+				rows.add(i);
+			}
+			ids[i] = (int) entries[i];
+		}
+		rows.add(size);
+		_soundexIds = ids;
+		_soundexRows = rows.toArray();
+		_soundexCodes = codes.toArray();
+	}
+
+	/**
+	 * Returns the American Soundex code of a word packed into an int: the index of its
+	 * first letter times 1000 plus its three digits, plus one. Characters other than
+	 * ASCII letters are ignored; a word without letters has code 0.
+	 */
+	static int getSoundex(String word)
+	{
+		int first = -1;
+		int digits = 0;
+		int digitCount = 0;
+		char previous = 0;
+		for (int i = 0; i < word.length() && digitCount < 3; i++)
+		{
+			final char c = Character.toLowerCase(word.charAt(i));
+			if ('a' > c || 'z' < c)
+			{
+				continue;
+			}
+			final char digit = SOUNDEX_DIGITS.charAt(c - 'a');
+			if (0 > first)
+			{
+				first = c - 'a';
+			}
+			else if ('0' != digit && '-' != digit && digit != previous)
+			{
+				digits = digits * 10 + (digit - '0');
+				digitCount++;
+			}
+			// h and w do not separate letters with the same digit, vowels do
+			if ('-' != digit)
+			{
+				previous = digit;
+			}
+		}
+		if (0 > first)
+		{
+			return 0;
+		}
+		for (; digitCount < 3; digitCount++)
+		{
+			digits *= 10;
+		}
+		return first * 1000 + digits + 1;
+	}
+
+	/**
+	 * Returns the edit distance between two packed Soundex codes.
+	 */
+	private static int getCodeDistance(int code1, int code2)
+	{
+		final char[] s = unpackSoundex(code1);
+		final char[] t = unpackSoundex(code2);
+		int[] previous = new int[t.length + 1];
+		int[] current = new int[t.length + 1];
+		for (int j = 0; j <= t.length; j++)
+		{
+			previous[j] = j;
+		}
+		for (int i = 1; i <= s.length; i++)
+		{
+			current[0] = i;
+			for (int j = 1; j <= t.length; j++)
+			{
+				final int substitution = previous[j - 1] + (s[i - 1] == t[j - 1] ? 0 : 1);
+				current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+			}
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return previous[t.length];
+	}
+
+	private static char[] unpackSoundex(int code)
+	{
+		final int value = code - 1;
+		return new char[] { (char) ('a' + value / 1000), (char) ('0' + value / 100 % 10), (char) ('0' + value / 10 % 10), (char) ('0' + value % 10) };
+	}
+
+	/**
+	 * Returns up to maxResults lemmas matching a wildcard pattern in full, where '*'
+	 * stands for any number of characters and '?' for any single one.
+	 */
+	public List<String> getWildcardMatch(String pattern, int maxResults)
+	{
+		StringBuilder regex = new StringBuilder();
+		List<String> literals = new ArrayList<String>();
+		StringBuilder literal = new StringBuilder();
+		for (int i = 0; i <= pattern.length(); i++)
+		{
+			final char c = i < pattern.length() ? pattern.charAt(i) : '*';
+			if ('*' == c || '?' == c)
+			{
+				if (0 < literal.length())
+				{
+					literals.add(literal.toString());
+					regex.append(Pattern.quote(literal.toString()));
+					literal.setLength(0);
+				}
+				if (i < pattern.length())
+				{
+					regex.append('*' == c ? ".*" : ".");
+				}
+			}
+			else
+			{
+				literal.append(c);
+			}
+		}
+		String prefix = "";
+		if (0 < pattern.length() && '*' != pattern.charAt(0) && '?' != pattern.charAt(0))
+		{
+			prefix = literals.get(0);
+		}
+		return match(Pattern.compile(regex.toString()), prefix, literals.toArray(new String[literals.size()]), maxResults);
+	}
+
+	/**
+	 * Returns up to maxResults lemmas matching a regular expression in full. Only the
+	 * literal prefix of the expression, if any, narrows the search.
+	 */
+	public List<String> getRegexMatch(String regex, int maxResults)
+	{
+		return match(Pattern.compile(regex), getLiteralPrefix(regex), new String[0], maxResults);
+	}
+
+	private List<String> match(Pattern pattern, String prefix, String[] literals, int maxResults)
+	{
+		final int low = lowerBound(_lemmas, prefix);
+		final int high = upperBound(_lemmas, prefix);
+		List<String> result = new ArrayList<String>();
+		final int[] candidates = getGramCandidates(literals);
+		if (null == candidates || high - low < candidates.length)
+		{
+			for (int id = low; id < high && result.size() < maxResults; id++)
+			{
+				if (pattern.matcher(_lemmas[id]).matches())
+				{
+					result.add(_lemmas[id]);
+				}
+			}
+			return result;
+		}
+		for (int i = 0; i < candidates.length && result.size() < maxResults; i++)
+		{
+			final int id = candidates[i];
+			if (low <= id && id < high && pattern.matcher(_lemmas[id]).matches())
+			{
+				result.add(_lemmas[id]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the sorted ids of the lemmas holding every trigram of the given strings,
+	 * or null if the strings hold no trigram and so do not narrow the search.
+	 */
+	private int[] getGramCandidates(String[] literals)
+	{
+		int[] candidates = null;
+		for (String literal : literals)
+		{
+			for (int i = 0; i + GRAM <= literal.length(); i++)
+			{
+				final int k = Arrays.binarySearch(_gramKeys, toGramKey(literal, i));
+				if (0 > k)
+				{
+					return new int[0];
+				}
+				candidates = null == candidates ? Arrays.copyOfRange(_postings, _gramRows[k], _gramRows[k + 1]) : intersect(candidates, k);
+				if (0 == candidates.length)
+				{
+					return candidates;
+				}
+			}
+		}
+		return candidates;
+	}
+
+	private int[] intersect(int[] candidates, int gram)
+	{
+		int[] result = new int[candidates.length];
+		int size = 0;
+		int posting = _gramRows[gram];
+		final int end = _gramRows[gram + 1];
+		for (int i = 0; i < candidates.length && posting < end; i++)
+		{
+			while (posting < end && _postings[posting] < candidates[i])
+			{
+				posting++;
+			}
+			if (posting < end && _postings[posting] == candidates[i])
+			{
+				result[size++] = candidates[i];
+			}
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	private static long toGramKey(String s, int start)
+	{
+		return ((long) s.charAt(start) << 32) | ((long) s.charAt(start + 1) << 16) | s.charAt(start + 2);
+	}
+
+	/**
+	 * Returns the characters every match of a regular expression starts with.
+	 */
+	static String getLiteralPrefix(String regex)
+	{
+		if (0 <= regex.indexOf('|'))
+		{
+			return "";
+		}
+		int i = regex.startsWith("^") ? 1 : 0;
+		final int start = i;
+		while (i < regex.length() && 0 > REGEX_META.indexOf(regex.charAt(i)))
+		{
+			i++;
+		}
+		// a quantifier makes the last literal character optional
+		if (i < regex.length() && 0 <= "*?{".indexOf(regex.charAt(i)) && start < i)
+		{
+			i--;
+		}
+		return regex.substring(start, i);
+	}
+
+	/**
+	 * Returns the first position whose string is not below the key.
+	 */
+	private static int lowerBound(String[] sorted, String key)
+	{
+		int low = 0;
+		int high = sorted.length;
+		while (low < high)
+		{
+			final int middle = (low + high) >>> 1;
+			if (sorted[middle].compareTo(key) < 0)
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the first position after the strings starting with the prefix.
+	 */
+	private static int upperBound(String[] sorted, String prefix)
+	{
+		int low = lowerBound(sorted, prefix);
+		int high = sorted.length;
+		while (low < high)
+		{
+			final int middle = (low + high) >>> 1;
+			if (sorted[middle].startsWith(prefix))
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,109 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Uniform sampling table over the lemmas of a {@link LemmaPatternIndex} that pass
+ * some filter. The eligible lemma ids are kept ordered by lemma length, so that a
+ * draw limited to a maximum length picks from a prefix of the table and takes
+ * constant time whatever the limit.
+ *
+ * @author Chiranjit Acharya
+ */
+public class LemmaSampler
+{
+	private final LemmaPatternIndex _index;
+	private final int[] _ids;
+	// _lengthEnds[n] is the number of eligible lemmas of at most n characters
+	private final int[] _lengthEnds;
+
+	/**
+	 * Creates a table over the given lemma ids of an index.
+	 *
+	 * @param index lemma index the ids refer to
+	 * @param ids ids of the eligible lemmas, in any order
+	 */
+	public LemmaSampler(final LemmaPatternIndex index, int[] ids)
+	{
+		_index = index;
+		Integer[] sorted = new Integer[ids.length];
+		int maxLength = 0;
+		for (int i = 0; i < ids.length; i++)
+		{
+			sorted[i] = Integer.valueOf(ids[i]);
+			maxLength = Math.max(maxLength, index.getLemma(ids[i]).length());
+		}
+		Arrays.sort(sorted, new Comparator<Integer>()
+		{
+			public int compare(Integer id1, Integer id2)
+			{
+				final int length1 = index.getLemma(id1.intValue()).length();
+				final int length2 = index.getLemma(id2.intValue()).length();
+				return length1 != length2 ? length1 - length2 : id1.intValue() - id2.intValue();
+			}
+		});
+
+		_ids = new int[sorted.length];
+		_lengthEnds = new int[maxLength + 1];
+		for (int i = 0; i < sorted.length; i++)
+		{
+			_ids[i] = sorted[i].intValue();
+			_lengthEnds[index.getLemma(_ids[i]).length()]++;
+		}
+		for (int n = 1; n <= maxLength; n++)
+		{
+			_lengthEnds[n] += _lengthEnds[n - 1];
+		}
+	}
+
+	/**
+	 * Returns the number of eligible lemmas of at most maxChars characters.
+	 */
+	public int size(int maxChars)
+	{
+		if (0 > maxChars)
+		{
+			return 0;
+		}
+		return _lengthEnds[Math.min(maxChars, _lengthEnds.length - 1)];
+	}
+
+	/**
+	 * Draws the id of an eligible lemma of at most maxChars characters, or returns -1
+	 * if there is none.
+	 */
+	public int drawId(Random random, int maxChars)
+	{
+		final int size = size(maxChars);
+		if (0 == size)
+		{
+			return -1;
+		}
+		return _ids[random.nextInt(size)];
+	}
+
+	/**
+	 * Draws an eligible lemma of at most maxChars characters, or returns null if
+	 * there is none.
+	 */
+	public String draw(Random random, int maxChars)
+	{
+		final int id = drawId(random, maxChars);
+		return 0 > id ? null : _index.getLemma(id);
+	}
+
+	public LemmaPatternIndex getIndex()
+	{
+		return _index;
+	}
+}
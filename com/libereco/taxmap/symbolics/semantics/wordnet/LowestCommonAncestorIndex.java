@@ -0,0 +1,334 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Lowest common hypernym of two synsets, with the hypernym distance from each of them.
+ * <p>
+ * The lowest common ancestor on the spanning forest taken by the
+ * {@link HypernymClosureIndex} (first hypernym as tree parent) is found in constant
+ * time with an Euler tour and a sparse-table range minimum query. That answer is exact
+ * whenever neither synset has a second hypernym anywhere above it, which holds for
+ * the great majority of WordNet. Other pairs are answered by a breadth first search
+ * up from both synsets, which stays small since hypernym ancestries are shallow.
+ * In both cases the result is the common ancestor with the shortest total path.
+ *
+ * @author Chiranjit Acharya
+ */
+public class LowestCommonAncestorIndex
+{
+	private static final Logger log = Logger.getLogger(LowestCommonAncestorIndex.class);
+
+	/**
+	 * Positions in the result arrays of {@link #query(int, int, int[])}.
+	 */
+	public static final int ANCESTOR = 0;
+	public static final int FIRST_DEPTH = 1;
+	public static final int SECOND_DEPTH = 2;
+
+	private final WordNetBinaryArray _array;
+
+	// tree depth and first Euler tour position of every synset
+	private final int[] _treeDepth;
+	private final int[] _firstVisit;
+	// true if every ancestor of the synset lies on its tree path
+	private final boolean[] _treeOnly;
+
+	// Euler tour over the spanning forest below a virtual root, which is visited as -1
+	private final int[] _tour;
+	// _sparseTable[k][i] is the tour position of least depth in [i, i + 2^k)
+	private final int[][] _sparseTable;
+
+	private final ThreadLocal<TraversalScratch> _firstScratch = new ThreadLocal<TraversalScratch>();
+	private final ThreadLocal<TraversalScratch> _secondScratch = new ThreadLocal<TraversalScratch>();
+
+	/**
+	 * Builds the index from the hypernym pointers of a compiled graph.
+	 *
+	 * @param array compiled synset graph
+	 */
+	public LowestCommonAncestorIndex(WordNetBinaryArray array)
+	{
+		_array = array;
+		final int synsetCount = array.getSynsetCount();
+		final int[] childRows = new int[synsetCount + 1];
+		final int[] children = HypernymClosureIndex.getHyponymRows(array, childRows);
+
+		int[] treeParent = new int[synsetCount];
+		int[] hypernymCount = new int[synsetCount];
+		for (int ordinal = 0; ordinal < synsetCount; ordinal++)
+		{
+			treeParent[ordinal] = -1;
+			final int end = array.getPointerEnd(ordinal);
+			for (int i = array.getPointerStart(ordinal); i < end; i++)
+			{
+				if (HypernymClosureIndex.isHypernym(array.getPointerType(i)))
+				{
+					if (0 == hypernymCount[ordinal]++)
+					{
+						treeParent[ordinal] = array.getPointerTarget(i);
+					}
+				}
+			}
+		}
+
+		// Euler tour, roots hang below the virtual root
+		_treeDepth = new int[synsetCount];
+		_firstVisit = new int[synsetCount];
+		_treeOnly = new boolean[synsetCount];
+		boolean[] visited = new boolean[synsetCount];
+		WordNetBinaryCompiler.IntList tour = new WordNetBinaryCompiler.IntList();
+		int[] stack = new int[synsetCount];
+		int[] cursor = new int[synsetCount];
+		tour.add(-1);
+		for (int pass = 0; pass < 2; pass++)
+		{
+			for (int root = 0; root < synsetCount; root++)
+			{
+				// roots first; then synsets left over because their tree parents form a cycle
+				if (visited[root] || (0 == pass && 0 <= treeParent[root]))
+				{
+					continue;
+				}
+				visited[root] = true;
+				_treeDepth[root] = 0;
+				_treeOnly[root] = 0 == pass;
+				_firstVisit[root] = tour.size();
+				tour.add(root);
+				int top = 0;
+				stack[0] = root;
+				cursor[root] = childRows[root];
+				while (0 <= top)
+				{
+					final int node = stack[top];
+					if (cursor[node] < childRows[node + 1])
+					{
+						final int child = children[cursor[node]++];
+						if (!visited[child] && node == treeParent[child])
+						{
+							visited[child] = true;
+							_treeDepth[child] = _treeDepth[node] + 1;
+							_treeOnly[child] = _treeOnly[node] && 1 == hypernymCount[child];
+							_firstVisit[child] = tour.size();
+							tour.add(child);
+							cursor[child] = childRows[child];
+							stack[++top] = child;
+						}
+					}
+					else
+					{
+						top--;
+						tour.add(0 <= top ? stack[top] : -1);
+					}
+				}
+			}
+		}
+		_tour = tour.toArray();
+
+		// sparse table over the tour
+		final int levels = 32 - Integer.numberOfLeadingZeros(_tour.length);
+		_sparseTable = new int[levels][];
+		_sparseTable[0] = new int[_tour.length];
+		for (int i = 0; i < _tour.length; i++)
+		{
+			_sparseTable[0][i] = i;
+		}
+		for (int k = 1; k < levels; k++)
+		{
+			final int half = 1 << (k - 1);
+			final int length = _tour.length - (1 << k) + 1;
+			_sparseTable[k] = new int[length];
+			for (int i = 0; i < length; i++)
+			{
+				_sparseTable[k][i] = shallower(_sparseTable[k - 1][i], _sparseTable[k - 1][i + half]);
+			}
+		}
+
+		if (log.isInfoEnabled())
+		{
+			int treeOnly = 0;
+			for (boolean flag : _treeOnly)
+			{
+				treeOnly += flag ? 1 : 0;
+			}
+			log.info("Common ancestor index built: " + synsetCount + " synsets, " + treeOnly + " with a single hypernym path");
+		}
+	}
+
+	/**
+	 * Finds the lowest common hypernym of two synsets.
+	 *
+	 * @param first ordinal of the first synset
+	 * @param second ordinal of the second synset
+	 * @param result receives the ancestor ordinal (-1 if the synsets share no hypernym)
+	 *        and the hypernym distances from both synsets to it, at {@link #ANCESTOR},
+	 *        {@link #FIRST_DEPTH} and {@link #SECOND_DEPTH}
+	 * @return the ancestor ordinal, or -1
+	 */
+	public int query(int first, int second, int[] result)
+	{
+		if (first == second)
+		{
+			return setResult(result, first, 0, 0);
+		}
+		if (_treeOnly[first] && _treeOnly[second])
+		{
+			final int ancestor = getTreeAncestor(first, second);
+			if (0 > ancestor)
+			{
+				return setResult(result, -1, 0, 0);
+			}
+			return setResult(result, ancestor, _treeDepth[first] - _treeDepth[ancestor], _treeDepth[second] - _treeDepth[ancestor]);
+		}
+		return search(first, second, result);
+	}
+
+	/**
+	 * Finds the lowest common hypernyms of many pairs of synsets.
+	 *
+	 * @param first ordinals of the first synsets
+	 * @param second ordinals of the second synsets, as many as the first ones
+	 * @param ancestors receives the ancestor ordinals, -1 where there is none
+	 * @param firstDepths receives the distances from the first synsets, may be null
+	 * @param secondDepths receives the distances from the second synsets, may be null
+	 */
+	public void query(int[] first, int[] second, int[] ancestors, int[] firstDepths, int[] secondDepths)
+	{
+		int[] result = new int[3];
+		for (int i = 0; i < first.length; i++)
+		{
+			query(first[i], second[i], result);
+			ancestors[i] = result[ANCESTOR];
+			if (null != firstDepths)
+			{
+				firstDepths[i] = result[FIRST_DEPTH];
+			}
+			if (null != secondDepths)
+			{
+				secondDepths[i] = result[SECOND_DEPTH];
+			}
+		}
+	}
+
+	public int getCommonAncestor(int first, int second)
+	{
+		return query(first, second, new int[3]);
+	}
+
+	/**
+	 * Returns the tree ancestor of two synsets, or -1 if they lie in different trees.
+	 */
+	private int getTreeAncestor(int first, int second)
+	{
+		int low = _firstVisit[first];
+		int high = _firstVisit[second];
+		if (low > high)
+		{
+			final int swap = low;
+			low = high;
+			high = swap;
+		}
+		final int k = 31 - Integer.numberOfLeadingZeros(high - low + 1);
+		return _tour[shallower(_sparseTable[k][low], _sparseTable[k][high - (1 << k) + 1])];
+	}
+
+	private int shallower(int position1, int position2)
+	{
+		return getTourDepth(position1) <= getTourDepth(position2) ? position1 : position2;
+	}
+
+	private int getTourDepth(int position)
+	{
+		final int node = _tour[position];
+		return 0 > node ? -1 : _treeDepth[node];
+	}
+
+	/**
+	 * Walks up from both synsets breadth first. The search from the second synset stops
+	 * as soon as its distance alone exceeds the best total found.
+	 */
+	private int search(int first, int second, int[] result)
+	{
+		final int synsetCount = _array.getSynsetCount();
+		TraversalScratch up = TraversalScratch.get(_firstScratch, synsetCount);
+		up.begin();
+		up.mark(first);
+		up.values[first] = 0;
+		up.queue[0] = first;
+		int tail = 1;
+		for (int head = 0; head < tail; head++)
+		{
+			final int node = up.queue[head];
+			final int end = _array.getPointerEnd(node);
+			for (int i = _array.getPointerStart(node); i < end; i++)
+			{
+				if (HypernymClosureIndex.isHypernym(_array.getPointerType(i)))
+				{
+					final int parent = _array.getPointerTarget(i);
+					if (up.mark(parent))
+					{
+						up.values[parent] = up.values[node] + 1;
+						up.enqueue(tail++, parent);
+					}
+				}
+			}
+		}
+
+		TraversalScratch down = TraversalScratch.get(_secondScratch, synsetCount);
+		down.begin();
+		down.mark(second);
+		down.values[second] = 0;
+		down.queue[0] = second;
+		tail = 1;
+		int best = -1;
+		int bestTotal = Integer.MAX_VALUE;
+		for (int head = 0; head < tail; head++)
+		{
+			final int node = down.queue[head];
+			final int distance = down.values[node];
+			if (distance >= bestTotal)
+			{
+				break;
+			}
+			if (up.isMarked(node) && up.values[node] + distance < bestTotal)
+			{
+				best = node;
+				bestTotal = up.values[node] + distance;
+			}
+			final int end = _array.getPointerEnd(node);
+			for (int i = _array.getPointerStart(node); i < end; i++)
+			{
+				if (HypernymClosureIndex.isHypernym(_array.getPointerType(i)))
+				{
+					final int parent = _array.getPointerTarget(i);
+					if (down.mark(parent))
+					{
+						down.values[parent] = distance + 1;
+						down.enqueue(tail++, parent);
+					}
+				}
+			}
+		}
+		if (0 > best)
+		{
+			return setResult(result, -1, 0, 0);
+		}
+		return setResult(result, best, up.values[best], down.values[best]);
+	}
+
+	private static int setResult(int[] result, int ancestor, int firstDepth, int secondDepth)
+	{
+		result[ANCESTOR] = ancestor;
+		result[FIRST_DEPTH] = firstDepth;
+		result[SECOND_DEPTH] = secondDepth;
+		return ancestor;
+	}
+}
@@ -0,0 +1,200 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+/**
+ * Bounded-depth search for pointer paths between two synsets of a compiled synset
+ * graph, in place of JWNL's RelationshipFinder, which expands whole pointer trees
+ * from both synsets before intersecting them.
+ * <p>
+ * The search runs breadth first from both ends at once, one level at a time on the
+ * smaller frontier, and stops at the level where the two searches meet or once the
+ * depth limit is reached. Visited marks are kept in per-thread scratch space stamped
+ * with an epoch, so a search allocates and clears nothing; finders are thread-safe.
+ *
+ * @author Chiranjit Acharya
+ */
+public class PointerPathFinder
+{
+	/**
+	 * Depth JWNL uses for symmetric relationships.
+	 */
+	public static final int DEFAULT_MAX_DEPTH = 2;
+
+	private final WordNetBinaryArray _array;
+	private final int _maxDepth;
+
+	private final ThreadLocal<TraversalScratch> _forwardScratch = new ThreadLocal<TraversalScratch>();
+	private final ThreadLocal<TraversalScratch> _backwardScratch = new ThreadLocal<TraversalScratch>();
+
+	public PointerPathFinder(WordNetBinaryArray array)
+	{
+		this(array, DEFAULT_MAX_DEPTH);
+	}
+
+	/**
+	 * @param array compiled synset graph
+	 * @param maxDepth number of links a path may have at most
+	 */
+	public PointerPathFinder(WordNetBinaryArray array, int maxDepth)
+	{
+		_array = array;
+		_maxDepth = maxDepth;
+	}
+
+	public int getMaxDepth()
+	{
+		return _maxDepth;
+	}
+
+	/**
+	 * Returns the mask of a pointer type, for combining types in a search.
+	 */
+	public static int mask(byte type)
+	{
+		return 1 << type;
+	}
+
+	/**
+	 * Returns the length of a shortest path of pointers of a symmetric type, such as
+	 * similar-to or antonymy, within the depth limit.
+	 *
+	 * @param source ordinal of the first synset
+	 * @param target ordinal of the second synset
+	 * @param types masks of the pointer types to follow
+	 * @return number of links, or -1 if there is no such path
+	 */
+	public int getDistance(int source, int target, int types)
+	{
+		return getDistance(source, target, types, types, _maxDepth);
+	}
+
+	/**
+	 * Returns the length of a shortest path from a source to a target synset within a
+	 * depth limit. The search from the source follows forward types and the search from
+	 * the target follows their inverses, such as hypernyms for hyponyms.
+	 *
+	 * @param source ordinal of the source synset
+	 * @param target ordinal of the target synset
+	 * @param forwardTypes masks of the pointer types leading away from the source
+	 * @param backwardTypes masks of the inverse pointer types, leading back from the target
+	 * @param maxDepth number of links a path may have at most
+	 * @return number of links, or -1 if there is no such path
+	 */
+	public int getDistance(int source, int target, int forwardTypes, int backwardTypes, int maxDepth)
+	{
+		if (source == target)
+		{
+			return 0;
+		}
+		final int synsetCount = _array.getSynsetCount();
+		TraversalScratch forward = start(_forwardScratch, synsetCount, source);
+		TraversalScratch backward = start(_backwardScratch, synsetCount, target);
+		int forwardHead = 0;
+		int forwardTail = 1;
+		int forwardDepth = 0;
+		int backwardHead = 0;
+		int backwardTail = 1;
+		int backwardDepth = 0;
+		while (forwardDepth + backwardDepth < maxDepth && forwardHead < forwardTail && backwardHead < backwardTail)
+		{
+			int best = -1;
+			if (forwardTail - forwardHead <= backwardTail - backwardHead)
+			{
+				final int levelEnd = forwardTail;
+				forwardTail = expand(forward, forwardHead, levelEnd, forwardTypes);
+				forwardHead = levelEnd;
+				forwardDepth++;
+				best = getBest(forward, forwardHead, forwardTail, backward);
+			}
+			else
+			{
+				final int levelEnd = backwardTail;
+				backwardTail = expand(backward, backwardHead, levelEnd, backwardTypes);
+				backwardHead = levelEnd;
+				backwardDepth++;
+				best = getBest(backward, backwardHead, backwardTail, forward);
+			}
+			if (0 <= best)
+			{
+				return best;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Checks whether a path of pointers of a symmetric type joins two synsets within
+	 * the depth limit.
+	 */
+	public boolean isConnected(int source, int target, int types)
+	{
+		return 0 <= getDistance(source, target, types);
+	}
+
+	private static TraversalScratch start(ThreadLocal<TraversalScratch> local, int synsetCount, int ordinal)
+	{
+		TraversalScratch scratch = TraversalScratch.get(local, synsetCount);
+		scratch.begin();
+		scratch.mark(ordinal);
+		scratch.values[ordinal] = 0;
+		scratch.queue[0] = ordinal;
+		return scratch;
+	}
+
+	/**
+	 * Expands one level of a search, queueing the synsets it reaches first.
+	 *
+	 * @return new end of the queue
+	 */
+	private int expand(TraversalScratch search, int head, int levelEnd, int types)
+	{
+		int tail = levelEnd;
+		for (int k = head; k < levelEnd; k++)
+		{
+			final int node = search.queue[k];
+			final int end = _array.getPointerEnd(node);
+			for (int i = _array.getPointerStart(node); i < end; i++)
+			{
+				if (0 != (types & mask(_array.getPointerType(i))))
+				{
+					final int next = _array.getPointerTarget(i);
+					if (search.mark(next))
+					{
+						search.values[next] = search.values[node] + 1;
+						search.enqueue(tail++, next);
+					}
+				}
+			}
+		}
+		return tail;
+	}
+
+	/**
+	 * Returns the shortest path length through the synsets a level has reached that the
+	 * other search has reached too, or -1 if the searches have not met.
+	 */
+	private static int getBest(TraversalScratch search, int head, int tail, TraversalScratch other)
+	{
+		int best = -1;
+		for (int k = head; k < tail; k++)
+		{
+			final int node = search.queue[k];
+			if (other.isMarked(node))
+			{
+				final int length = search.values[node] + other.values[node];
+				if (0 > best || length < best)
+				{
+					best = length;
+				}
+			}
+		}
+		return best;
+	}
+}
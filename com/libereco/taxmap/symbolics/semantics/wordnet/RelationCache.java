@@ -0,0 +1,291 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+import java.util.Arrays;
+
+import com.libereco.taxmap.symbolics.data.ling.IDenotation;
+import com.libereco.taxmap.symbolics.data.ling.SenseIdCodec;
+
+/**
+ * Bounded cache of relations between pairs of senses, keyed on primitive longs.
+ * <p>
+ * Entries live in lock-striped segments. Each segment is a set-associative table:
+ * a key hashes to one set of {@link #WAYS} slots, and when the set is full the
+ * entry to replace is chosen with a second-chance (CLOCK) sweep over the set.
+ * Nothing is allocated on lookup or insertion. Slots hold int values, so package code
+ * can cache other primitive values than relations, such as divergences.
+ *
+ * @author Chiranjit Acharya
+ */
+public class RelationCache
+{
+	/**
+	 * Returned by {@link #get(long)} when the key is not cached.
+	 */
+	public static final char NOT_FOUND = 0;
+
+	/**
+	 * Returned by {@link #toKey} for senses that cannot be packed into a key.
+	 */
+	public static final long NO_KEY = -1L;
+
+	public static final int DEFAULT_CAPACITY = 1 << 18;
+
+	static final int WAYS = 8;
+
+	private final Segment[] _segments;
+	private final int _segmentMask;
+
+	/**
+	 * Creates a cache holding at most about the given number of relations.
+	 *
+	 * @param capacity maximum number of cached relations
+	 */
+	public RelationCache(int capacity)
+	{
+		int segmentCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4));
+		while (1 < segmentCount && capacity < segmentCount * WAYS)
+		{
+			segmentCount >>>= 1;
+		}
+		final int setsPerSegment = Integer.highestOneBit(Math.max(1, capacity / (segmentCount * WAYS)));
+		_segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++)
+		{
+			_segments[i] = new Segment(setsPerSegment);
+		}
+		_segmentMask = segmentCount - 1;
+	}
+
+	public RelationCache()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Packs an ordered pair of senses into a cache key.
+	 *
+	 * @param source source sense
+	 * @param target target sense
+	 * @return cache key, or {@link #NO_KEY} if either sense cannot be packed
+	 */
+	public static long toKey(IDenotation source, IDenotation target)
+	{
+		final long sourceKey = SenseIdCodec.encode(source);
+		final long targetKey = SenseIdCodec.encode(target);
+		if (SenseIdCodec.NO_ID == sourceKey || SenseIdCodec.NO_ID == targetKey)
+		{
+			return NO_KEY;
+		}
+		return (sourceKey << 32) | targetKey;
+	}
+
+	/**
+	 * Returns the cached relation for a key.
+	 *
+	 * @param key key made by {@link #toKey}
+	 * @return relation, or {@link #NOT_FOUND}
+	 */
+	public char get(long key)
+	{
+		return (char) getValue(key);
+	}
+
+	/**
+	 * Caches a relation, replacing an old entry if the set the key falls into is full.
+	 *
+	 * @param key key made by {@link #toKey}
+	 * @param relation relation symbol, must not be {@link #NOT_FOUND}
+	 */
+	public void put(long key, char relation)
+	{
+		putValue(key, relation);
+	}
+
+	/**
+	 * Returns the cached value for a key, or {@link #NOT_FOUND}.
+	 */
+	int getValue(long key)
+	{
+		final long hash = mix(key);
+		return _segments[(int) (hash >>> 32) & _segmentMask].get(key, (int) hash);
+	}
+
+	/**
+	 * Caches a value, which must not be {@link #NOT_FOUND}.
+	 */
+	void putValue(long key, int value)
+	{
+		final long hash = mix(key);
+		_segments[(int) (hash >>> 32) & _segmentMask].put(key, (int) hash, value);
+	}
+
+	public long getHitCount()
+	{
+		long count = 0;
+		for (Segment segment : _segments)
+		{
+			synchronized (segment)
+			{
+				count += segment.hits;
+			}
+		}
+		return count;
+	}
+
+	public long getMissCount()
+	{
+		long count = 0;
+		for (Segment segment : _segments)
+		{
+			synchronized (segment)
+			{
+				count += segment.misses;
+			}
+		}
+		return count;
+	}
+
+	public int size()
+	{
+		int size = 0;
+		for (Segment segment : _segments)
+		{
+			synchronized (segment)
+			{
+				size += segment.size;
+			}
+		}
+		return size;
+	}
+
+	public int getCapacity()
+	{
+		return _segments.length * _segments[0].values.length;
+	}
+
+	public void clear()
+	{
+		for (Segment segment : _segments)
+		{
+			segment.clear();
+		}
+	}
+
+	public String toString()
+	{
+		return "RelationCache[size=" + size() + ", capacity=" + getCapacity() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + "]";
+	}
+
+	/**
+	 * 64-bit finalizer of MurmurHash3, spreads packed offsets over all bits.
+	 */
+	static long mix(long key)
+	{
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return key;
+	}
+
+	/**
+	 * One lock stripe of the cache.
+	 */
+	private static final class Segment
+	{
+		final long[] keys;
+		final int[] values;
+		final boolean[] referenced;
+		final byte[] hands;
+		final int setMask;
+
+		int size = 0;
+		long hits = 0;
+		long misses = 0;
+
+		Segment(int setCount)
+		{
+			keys = new long[setCount * WAYS];
+			values = new int[setCount * WAYS];
+			referenced = new boolean[setCount * WAYS];
+			hands = new byte[setCount];
+			setMask = setCount - 1;
+		}
+
+		synchronized int get(long key, int hash)
+		{
+			final int base = (hash & setMask) * WAYS;
+			for (int i = base; i < base + WAYS; i++)
+			{
+				if (NOT_FOUND != values[i] && key == keys[i])
+				{
+					referenced[i] = true;
+					hits++;
+					return values[i];
+				}
+			}
+			misses++;
+			return NOT_FOUND;
+		}
+
+		synchronized void put(long key, int hash, int value)
+		{
+			final int set = hash & setMask;
+			final int base = set * WAYS;
+			int free = -1;
+			for (int i = base; i < base + WAYS; i++)
+			{
+				if (NOT_FOUND == values[i])
+				{
+					if (0 > free)
+					{
+						free = i;
+					}
+				}
+				else if (key == keys[i])
+				{
+					values[i] = value;
+					referenced[i] = true;
+					return;
+				}
+			}
+			if (0 > free)
+			{
+				// second chance: clear reference bits until an unreferenced slot comes up
+				int hand = hands[set];
+				while (referenced[base + hand])
+				{
+					referenced[base + hand] = false;
+					hand = (hand + 1) % WAYS;
+				}
+				free = base + hand;
+				hands[set] = (byte) ((hand + 1) % WAYS);
+			}
+			else
+			{
+				size++;
+			}
+			keys[free] = key;
+			values[free] = value;
+			referenced[free] = false;
+		}
+
+		synchronized void clear()
+		{
+			Arrays.fill(values, NOT_FOUND);
+			Arrays.fill(referenced, false);
+			size = 0;
+			hits = 0;
+			misses = 0;
+		}
+	}
+}
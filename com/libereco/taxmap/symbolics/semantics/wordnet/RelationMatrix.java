@@ -0,0 +1,376 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.libereco.taxmap.symbolics.data.ling.IDenotation;
+import com.libereco.taxmap.symbolics.data.map.IRelationInstance;
+import com.libereco.taxmap.symbolics.semantics.DenotationException;
+
+/**
+ * Relations between every source and every target list of senses, computed in one batch.
+ * <p>
+ * Identical sense lists are computed once, and so is the relation of every distinct pair
+ * of senses. The relation of two lists is the strongest relation of any pair of their
+ * senses, ranked as the per-pair getRelation methods test them: equivalence, less
+ * general, more general, disjoint. Rows of both stages are split across a fork/join pool.
+ *
+ * @author Chiranjit Acharya
+ */
+class RelationMatrix
+{
+	/**
+	 * Relation of a pair of senses.
+	 */
+	interface SenseRelation
+	{
+		/**
+		 * Returns the strongest relation holding between two senses, or IDK.
+		 */
+		char getRelation(IDenotation sourceMeaning, IDenotation targetMeaning) throws DenotationException;
+	}
+
+	// rows a task computes before it stops splitting
+	private static final int ROWS_PER_TASK = 16;
+
+	private static final ForkJoinPool POOL = new ForkJoinPool();
+
+	private final SenseRelation _relation;
+
+	private final List<IDenotation> _sourceSenses = new ArrayList<IDenotation>();
+	private final List<IDenotation> _targetSenses = new ArrayList<IDenotation>();
+	// distinct lists as indexes into the distinct senses
+	private final List<int[]> _sourceRows = new ArrayList<int[]>();
+	private final List<int[]> _targetRows = new ArrayList<int[]>();
+
+	private char[] _senseMatrix;
+	private char[] _rowMatrix;
+
+	private final AtomicReference<DenotationException> _error = new AtomicReference<DenotationException>();
+
+	private RelationMatrix(SenseRelation relation)
+	{
+		_relation = relation;
+	}
+
+	/**
+	 * Computes the relations between all source and all target lists of senses.
+	 *
+	 * @param sourceMeaningLists source lists of senses
+	 * @param targetMeaningLists target lists of senses
+	 * @param relation relation of a pair of senses
+	 * @return relations in row-major order, the one between source list i and target
+	 *         list j at i * targetMeaningLists.size() + j
+	 * @throws DenotationException if a pair of senses could not be compared
+	 */
+	static char[] compute(List<List<IDenotation>> sourceMeaningLists, List<List<IDenotation>> targetMeaningLists, SenseRelation relation) throws DenotationException
+	{
+		RelationMatrix matrix = new RelationMatrix(relation);
+		final int[] sourceIndex = index(sourceMeaningLists, matrix._sourceSenses, matrix._sourceRows);
+		final int[] targetIndex = index(targetMeaningLists, matrix._targetSenses, matrix._targetRows);
+
+		matrix._senseMatrix = new char[matrix._sourceSenses.size() * matrix._targetSenses.size()];
+		POOL.invoke(matrix.new SenseTask(0, matrix._sourceSenses.size()));
+		matrix.checkError();
+
+		matrix._rowMatrix = new char[matrix._sourceRows.size() * matrix._targetRows.size()];
+		POOL.invoke(matrix.new RowTask(0, matrix._sourceRows.size()));
+
+		final int rowLength = matrix._targetRows.size();
+		char[] relations = new char[sourceIndex.length * targetIndex.length];
+		for (int i = 0; i < sourceIndex.length; i++)
+		{
+			for (int j = 0; j < targetIndex.length; j++)
+			{
+				relations[i * targetIndex.length + j] = matrix._rowMatrix[sourceIndex[i] * rowLength + targetIndex[j]];
+			}
+		}
+		return relations;
+	}
+
+	/**
+	 * Returns the rank of a relation, higher for the relations getRelation tests first.
+	 */
+	static int getRank(char relation)
+	{
+		switch (relation)
+		{
+		case IRelationInstance.EQUIVALENCE:
+			return 4;
+		case IRelationInstance.LESS_GENERAL:
+			return 3;
+		case IRelationInstance.MORE_GENERAL:
+			return 2;
+		case IRelationInstance.DISJOINT:
+			return 1;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Returns the stronger of two relations.
+	 */
+	static char getStronger(char relation1, char relation2)
+	{
+		return getRank(relation1) >= getRank(relation2) ? relation1 : relation2;
+	}
+
+	/**
+	 * Orders a list of senses most frequent first. Senses come in WordNet sense number
+	 * order, which is frequency order, one part of speech after the other; the first
+	 * senses of all parts of speech are taken first, then the second ones, and so on.
+	 */
+	static IDenotation[] getFrequencyOrder(List<IDenotation> meaningList)
+	{
+		final int size = meaningList.size();
+		int[] ranks = new int[size];
+		int maxRank = 0;
+		for (int i = 1; i < size; i++)
+		{
+			if (meaningList.get(i).getPosition() == meaningList.get(i - 1).getPosition())
+			{
+				ranks[i] = ranks[i - 1] + 1;
+			}
+			maxRank = Math.max(maxRank, ranks[i]);
+		}
+		IDenotation[] meanings = new IDenotation[size];
+		if (maxRank == size - 1)
+		{
+			// a single part of speech, already in order
+			return meaningList.toArray(meanings);
+		}
+		int next = 0;
+		for (int rank = 0; rank <= maxRank; rank++)
+		{
+			for (int i = 0; i < size; i++)
+			{
+				if (rank == ranks[i])
+				{
+					meanings[next++] = meaningList.get(i);
+				}
+			}
+		}
+		return meanings;
+	}
+
+	/**
+	 * Collects the distinct senses and the distinct lists of a side.
+	 *
+	 * @return index of the distinct row of every list
+	 */
+	private static int[] index(List<List<IDenotation>> meaningLists, List<IDenotation> senses, List<int[]> rows)
+	{
+		Map<SenseKey, Integer> senseIndex = new HashMap<SenseKey, Integer>();
+		Map<RowKey, Integer> rowIndex = new HashMap<RowKey, Integer>();
+		int[] index = new int[meaningLists.size()];
+		for (int i = 0; i < index.length; i++)
+		{
+			List<IDenotation> meaningList = meaningLists.get(i);
+			int[] row = new int[meaningList.size()];
+			for (int k = 0; k < row.length; k++)
+			{
+				IDenotation meaning = meaningList.get(k);
+				SenseKey key = new SenseKey(meaning.getPosition(), meaning.getId());
+				Integer sense = senseIndex.get(key);
+				if (null == sense)
+				{
+					sense = senses.size();
+					senseIndex.put(key, sense);
+					senses.add(meaning);
+				}
+				row[k] = sense;
+			}
+			RowKey key = new RowKey(row);
+			Integer distinct = rowIndex.get(key);
+			if (null == distinct)
+			{
+				distinct = rows.size();
+				rowIndex.put(key, distinct);
+				rows.add(row);
+			}
+			index[i] = distinct;
+		}
+		return index;
+	}
+
+	private void checkError() throws DenotationException
+	{
+		final DenotationException e = _error.get();
+		if (null != e)
+		{
+			throw e;
+		}
+	}
+
+	private void computeSenseRow(int source)
+	{
+		final int rowLength = _targetSenses.size();
+		final IDenotation sourceMeaning = _sourceSenses.get(source);
+		for (int target = 0; target < rowLength && null == _error.get(); target++)
+		{
+			try
+			{
+				_senseMatrix[source * rowLength + target] = _relation.getRelation(sourceMeaning, _targetSenses.get(target));
+			}
+			catch (DenotationException e)
+			{
+				_error.compareAndSet(null, e);
+			}
+		}
+	}
+
+	private void computeRow(int source)
+	{
+		final int senseRowLength = _targetSenses.size();
+		final int rowLength = _targetRows.size();
+		final int[] sourceRow = _sourceRows.get(source);
+		for (int target = 0; target < rowLength; target++)
+		{
+			final int[] targetRow = _targetRows.get(target);
+			char relation = IRelationInstance.IDK;
+			for (int i = 0; i < sourceRow.length && IRelationInstance.EQUIVALENCE != relation; i++)
+			{
+				final int offset = sourceRow[i] * senseRowLength;
+				for (int j = 0; j < targetRow.length; j++)
+				{
+					relation = getStronger(relation, _senseMatrix[offset + targetRow[j]]);
+				}
+			}
+			_rowMatrix[source * rowLength + target] = relation;
+		}
+	}
+
+	/**
+	 * Computes the relations of a range of distinct source senses.
+	 */
+	private class SenseTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int _low;
+		private final int _high;
+
+		SenseTask(int low, int high)
+		{
+			_low = low;
+			_high = high;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (_high - _low <= ROWS_PER_TASK)
+			{
+				for (int source = _low; source < _high; source++)
+				{
+					computeSenseRow(source);
+				}
+			}
+			else
+			{
+				final int middle = (_low + _high) >>> 1;
+				invokeAll(new SenseTask(_low, middle), new SenseTask(middle, _high));
+			}
+		}
+	}
+
+	/**
+	 * Computes the relations of a range of distinct source lists.
+	 */
+	private class RowTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int _low;
+		private final int _high;
+
+		RowTask(int low, int high)
+		{
+			_low = low;
+			_high = high;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (_high - _low <= ROWS_PER_TASK)
+			{
+				for (int source = _low; source < _high; source++)
+				{
+					computeRow(source);
+				}
+			}
+			else
+			{
+				final int middle = (_low + _high) >>> 1;
+				invokeAll(new RowTask(_low, middle), new RowTask(middle, _high));
+			}
+		}
+	}
+
+	private static final class SenseKey
+	{
+		private final char _pos;
+		private final long _id;
+
+		SenseKey(char pos, long id)
+		{
+			_pos = pos;
+			_id = id;
+		}
+
+		@Override
+		public boolean equals(Object that)
+		{
+			if (!(that instanceof SenseKey))
+			{
+				return false;
+			}
+			SenseKey key = (SenseKey) that;
+			return _pos == key._pos && _id == key._id;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return 31 * _pos + (int) (_id ^ (_id >>> 32));
+		}
+	}
+
+	private static final class RowKey
+	{
+		private final int[] _senses;
+
+		RowKey(int[] senses)
+		{
+			_senses = senses;
+		}
+
+		@Override
+		public boolean equals(Object that)
+		{
+			return that instanceof RowKey && Arrays.equals(_senses, ((RowKey) that)._senses);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Arrays.hashCode(_senses);
+		}
+	}
+}
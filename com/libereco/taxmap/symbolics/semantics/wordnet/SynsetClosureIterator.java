@@ -0,0 +1,226 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazy breadth first walk over the hypernym or hyponym closure of a synset in a
+ * compiled synset graph. Instance links are only followed when asked for, as JWNL's
+ * hypernym and hyponym trees and the closure indexes leave them out.
+ * <p>
+ * Synsets are returned by ordinal, nearest first, each once however many paths lead
+ * to it, and only expanded when they are returned, so a walk that is given up early
+ * or bounded in depth or size never touches the rest of the closure. The seed synset
+ * itself is not returned. Lemmas are only read when asked for. {@link #nextOrdinal}
+ * walks without boxing, {@link #next} serves code written against {@link Iterator}.
+ *
+ * @author Chiranjit Acharya
+ */
+public class SynsetClosureIterator implements Iterator<Integer>
+{
+	private final WordNetBinaryArray _array;
+	private final byte _type;
+	// -1 unless instance links are followed
+	private final byte _instanceType;
+	private final int _maxDepth;
+	private final int _maxResults;
+	private final int _seed;
+
+	private final BitSet _visited = new BitSet();
+	// pending ordinals and their depths, from _head to _tail
+	private int[] _ordinals = new int[64];
+	private int[] _depths = new int[64];
+	private int _head = 0;
+	private int _tail = 0;
+
+	private int _count = 0;
+	private int _ordinal = -1;
+	private int _depth = -1;
+
+	private SynsetClosureIterator(WordNetBinaryArray array, int ordinal, byte type, byte instanceType, int maxDepth, int maxResults)
+	{
+		_array = array;
+		_type = type;
+		_instanceType = instanceType;
+		_maxDepth = maxDepth;
+		_maxResults = maxResults;
+		_seed = ordinal;
+		_visited.set(ordinal);
+		expand(ordinal, 0);
+	}
+
+	/**
+	 * Walks the hypernyms of a synset, not following instance links.
+	 */
+	public static SynsetClosureIterator hypernyms(WordNetBinaryArray array, int ordinal, int maxDepth, int maxResults)
+	{
+		return hypernyms(array, ordinal, maxDepth, maxResults, false);
+	}
+
+	/**
+	 * Walks the hypernyms of a synset.
+	 *
+	 * @param array compiled synset graph
+	 * @param ordinal ordinal of the seed synset
+	 * @param maxDepth number of links to follow at most, 1 for direct hypernyms
+	 * @param maxResults number of synsets to return at most
+	 * @param instances whether instance hypernym links are followed as well
+	 * @return iterator over hypernym ordinals
+	 */
+	public static SynsetClosureIterator hypernyms(WordNetBinaryArray array, int ordinal, int maxDepth, int maxResults, boolean instances)
+	{
+		return new SynsetClosureIterator(array, ordinal, WordNetBinaryArray.HYPERNYM, instances ? WordNetBinaryArray.INSTANCE_HYPERNYM : -1, maxDepth, maxResults);
+	}
+
+	/**
+	 * Walks the hyponyms of a synset, not following instance links.
+	 */
+	public static SynsetClosureIterator hyponyms(WordNetBinaryArray array, int ordinal, int maxDepth, int maxResults)
+	{
+		return hyponyms(array, ordinal, maxDepth, maxResults, false);
+	}
+
+	/**
+	 * Walks the hyponyms of a synset.
+	 *
+	 * @param array compiled synset graph
+	 * @param ordinal ordinal of the seed synset
+	 * @param maxDepth number of links to follow at most, 1 for direct hyponyms
+	 * @param maxResults number of synsets to return at most
+	 * @param instances whether instance hyponym links are followed as well
+	 * @return iterator over hyponym ordinals
+	 */
+	public static SynsetClosureIterator hyponyms(WordNetBinaryArray array, int ordinal, int maxDepth, int maxResults, boolean instances)
+	{
+		return new SynsetClosureIterator(array, ordinal, WordNetBinaryArray.HYPONYM, instances ? WordNetBinaryArray.INSTANCE_HYPONYM : -1, maxDepth, maxResults);
+	}
+
+	public boolean hasNext()
+	{
+		return _head < _tail && _count < _maxResults;
+	}
+
+	public Integer next()
+	{
+		return nextOrdinal();
+	}
+
+	/**
+	 * Returns the ordinal of the next synset of the closure.
+	 */
+	public int nextOrdinal()
+	{
+		if (!hasNext())
+		{
+			throw new NoSuchElementException();
+		}
+		_ordinal = _ordinals[_head];
+		_depth = _depths[_head];
+		_head++;
+		_count++;
+		expand(_ordinal, _depth);
+		return _ordinal;
+	}
+
+	public void remove()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Returns the number of links between the seed and the synset last returned.
+	 */
+	public int getDepth()
+	{
+		return _depth;
+	}
+
+	/**
+	 * Returns the ordinal of the seed synset.
+	 */
+	public int getSeed()
+	{
+		return _seed;
+	}
+
+	/**
+	 * Returns the lemmas of the synset last returned, spelled as in index files.
+	 */
+	public String[] getLemmas()
+	{
+		if (0 > _ordinal)
+		{
+			throw new IllegalStateException("nextOrdinal() has not been called");
+		}
+		return getLemmas(_ordinal);
+	}
+
+	/**
+	 * Returns the lemmas of a synset, spelled as in index files.
+	 */
+	public String[] getLemmas(int ordinal)
+	{
+		String[] lemmas = new String[_array.getWordCount(ordinal)];
+		for (int i = 0; i < lemmas.length; i++)
+		{
+			lemmas[i] = _array.getLemma(_array.getWord(ordinal, i));
+		}
+		return lemmas;
+	}
+
+	private void expand(int ordinal, int depth)
+	{
+		if (depth >= _maxDepth)
+		{
+			return;
+		}
+		final int end = _array.getPointerEnd(ordinal);
+		for (int i = _array.getPointerStart(ordinal); i < end; i++)
+		{
+			final byte type = _array.getPointerType(i);
+			if (_type != type && _instanceType != type)
+			{
+				continue;
+			}
+			final int target = _array.getPointerTarget(i);
+			if (!_visited.get(target))
+			{
+				_visited.set(target);
+				enqueue(target, depth + 1);
+			}
+		}
+	}
+
+	private void enqueue(int ordinal, int depth)
+	{
+		if (_tail == _ordinals.length)
+		{
+			// reclaim the consumed head before growing
+			if (_head > _tail / 2)
+			{
+				System.arraycopy(_ordinals, _head, _ordinals, 0, _tail - _head);
+				System.arraycopy(_depths, _head, _depths, 0, _tail - _head);
+				_tail -= _head;
+				_head = 0;
+			}
+			else
+			{
+				_ordinals = Arrays.copyOf(_ordinals, _ordinals.length * 2);
+				_depths = Arrays.copyOf(_depths, _depths.length * 2);
+			}
+		}
+		_ordinals[_tail] = ordinal;
+		_depths[_tail] = depth;
+		_tail++;
+	}
+}
@@ -0,0 +1,128 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Map;
+
+import com.libereco.taxmap.symbolics.semantics.SemanticsException;
+
+/**
+ * Shortest hypernym distance from every synset to a root of its hierarchy,
+ * indexed by synset ordinal. Only hypernym pointers are followed, not instance
+ * hypernyms, as in JWNL's hypernym trees.
+ *
+ * @author Chiranjit Acharya
+ */
+public class SynsetDepthTable
+{
+	private final IntBuffer _depths;
+
+	private SynsetDepthTable(IntBuffer depths)
+	{
+		_depths = depths;
+	}
+
+	/**
+	 * Returns the table stored in a compiled graph, or builds it from the pointer rows
+	 * if the graph was compiled without it.
+	 *
+	 * @param array compiled synset graph
+	 * @return depth table
+	 * @throws SemanticsException
+	 */
+	public static SynsetDepthTable load(WordNetBinaryArray array) throws SemanticsException
+	{
+		if (null == array.getSection(WordNetBinaryArray.SECTION_MIN_DEPTHS))
+		{
+			return build(array);
+		}
+		return new SynsetDepthTable(array.getIntSection(WordNetBinaryArray.SECTION_MIN_DEPTHS));
+	}
+
+	/**
+	 * Builds the table with a breadth first walk down from all roots at once.
+	 *
+	 * @param array compiled synset graph
+	 * @return depth table
+	 */
+	public static SynsetDepthTable build(WordNetBinaryArray array)
+	{
+		final int synsetCount = array.getSynsetCount();
+		final int[] childRows = new int[synsetCount + 1];
+		final int[] children = HypernymClosureIndex.getHyponymRows(array, childRows);
+
+		int[] depths = new int[synsetCount];
+		int[] queue = new int[synsetCount];
+		int tail = 0;
+		for (int ordinal = 0; ordinal < synsetCount; ordinal++)
+		{
+			depths[ordinal] = -1;
+			if (!hasHypernym(array, ordinal))
+			{
+				depths[ordinal] = 0;
+				queue[tail++] = ordinal;
+			}
+		}
+		for (int head = 0; head < tail; head++)
+		{
+			final int node = queue[head];
+			for (int i = childRows[node]; i < childRows[node + 1]; i++)
+			{
+				final int child = children[i];
+				if (0 > depths[child])
+				{
+					depths[child] = depths[node] + 1;
+					queue[tail++] = child;
+				}
+			}
+		}
+		// synsets only reachable through a hypernym cycle count as roots
+		for (int ordinal = 0; ordinal < synsetCount; ordinal++)
+		{
+			if (0 > depths[ordinal])
+			{
+				depths[ordinal] = 0;
+			}
+		}
+		return new SynsetDepthTable(IntBuffer.wrap(depths));
+	}
+
+	/**
+	 * Adds the table to the sections of a graph being compiled.
+	 */
+	public void writeSections(Map<Integer, ByteBuffer> sections)
+	{
+		int[] depths = new int[_depths.limit()];
+		_depths.duplicate().get(depths);
+		sections.put(WordNetBinaryArray.SECTION_MIN_DEPTHS, WordNetBinaryCompiler.toBuffer(depths));
+	}
+
+	/**
+	 * Returns the number of hypernym links on the shortest path from a synset to a root.
+	 */
+	public int getDepth(int ordinal)
+	{
+		return _depths.get(ordinal);
+	}
+
+	private static boolean hasHypernym(WordNetBinaryArray array, int ordinal)
+	{
+		final int end = array.getPointerEnd(ordinal);
+		for (int i = array.getPointerStart(ordinal); i < end; i++)
+		{
+			if (HypernymClosureIndex.isHypernym(array.getPointerType(i)))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+}
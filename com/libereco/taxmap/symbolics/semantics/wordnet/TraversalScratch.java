@@ -0,0 +1,95 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+import java.util.Arrays;
+
+/**
+ * Reusable visited marks, values and queue for traversals over synset ordinals.
+ * Marks are stamped with an epoch, so starting a new traversal does not clear anything.
+ * Instances are not thread-safe; use one per thread.
+ *
+ * @author Chiranjit Acharya
+ */
+class TraversalScratch
+{
+	private final int[] _marks;
+	private int _epoch = 0;
+
+	int[] queue;
+
+	// per-ordinal values, only meaningful for ordinals marked in the current traversal
+	final int[] values;
+
+	TraversalScratch(int size)
+	{
+		_marks = new int[size];
+		queue = new int[Math.min(size, 1024)];
+		values = new int[size];
+	}
+
+	/**
+	 * Starts a new traversal, forgetting all marks.
+	 */
+	void begin()
+	{
+		_epoch++;
+		if (0 == _epoch)
+		{
+			Arrays.fill(_marks, 0);
+			_epoch = 1;
+		}
+	}
+
+	/**
+	 * Marks an ordinal as visited.
+	 *
+	 * @return true if the ordinal was not visited before in this traversal
+	 */
+	boolean mark(int ordinal)
+	{
+		if (_epoch == _marks[ordinal])
+		{
+			return false;
+		}
+		_marks[ordinal] = _epoch;
+		return true;
+	}
+
+	boolean isMarked(int ordinal)
+	{
+		return _epoch == _marks[ordinal];
+	}
+
+	/**
+	 * Stores an ordinal in the queue, growing it when needed.
+	 */
+	void enqueue(int index, int ordinal)
+	{
+		if (index == queue.length)
+		{
+			queue = Arrays.copyOf(queue, Math.min(queue.length * 2, _marks.length));
+		}
+		queue[index] = ordinal;
+	}
+
+	/**
+	 * Returns a per-thread scratch sized for the given synset count.
+	 */
+	static TraversalScratch get(ThreadLocal<TraversalScratch> local, int size)
+	{
+		TraversalScratch scratch = local.get();
+		if (null == scratch || scratch._marks.length < size)
+		{
+			scratch = new TraversalScratch(size);
+			local.set(scratch);
+		}
+		return scratch;
+	}
+}
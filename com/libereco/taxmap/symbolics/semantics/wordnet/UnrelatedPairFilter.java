@@ -0,0 +1,173 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over the keys of sense pairs found to be unrelated, so that unrelated
+ * pairs need no cache entries of their own.
+ * <p>
+ * A hit only means that a pair was probably added before, so it must never decide a
+ * relation by itself: the caller answers a hit with a check cheap enough to need no
+ * cache, such as the index checks of the compiled graph, which also give a false
+ * positive its true relation.
+ * <p>
+ * The filter is sized for an expected number of pairs and a false positive rate. Once
+ * that many pairs have been added it starts over empty, which keeps both its memory and
+ * its false positive rate within budget. Bits are set with compare-and-set, so the
+ * filter is thread-safe without locks; a pair added while the filter starts over may be
+ * lost, which only costs a later add.
+ *
+ * @author Chiranjit Acharya
+ */
+public class UnrelatedPairFilter
+{
+	public static final int DEFAULT_EXPECTED_PAIRS = 1 << 20;
+	public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.001;
+
+	private final AtomicLongArray _words;
+	private final long _bitCount;
+	private final int _hashCount;
+	private final int _expectedPairs;
+
+	private final AtomicInteger _size = new AtomicInteger();
+	private final AtomicLong _hits = new AtomicLong();
+	private final AtomicLong _misses = new AtomicLong();
+
+	/**
+	 * Creates a filter of the optimal size for the expected number of pairs and false
+	 * positive rate.
+	 *
+	 * @param expectedPairs number of pairs the filter holds before it starts over
+	 * @param falsePositiveRate probability that a pair never added is reported as added
+	 */
+	public UnrelatedPairFilter(int expectedPairs, double falsePositiveRate)
+	{
+		if (0 >= expectedPairs || 0 >= falsePositiveRate || 1 <= falsePositiveRate)
+		{
+			throw new IllegalArgumentException("Illegal filter size " + expectedPairs + " or false positive rate " + falsePositiveRate);
+		}
+		final double ln2 = Math.log(2);
+		final long bits = (long) Math.ceil(-expectedPairs * Math.log(falsePositiveRate) / (ln2 * ln2));
+		final int wordCount = (int) Math.min(Integer.MAX_VALUE, (bits + 63) >>> 6);
+		_words = new AtomicLongArray(wordCount);
+		_bitCount = (long) wordCount << 6;
+		_hashCount = Math.max(1, (int) Math.round((double) _bitCount / expectedPairs * ln2));
+		_expectedPairs = expectedPairs;
+	}
+
+	public UnrelatedPairFilter()
+	{
+		this(DEFAULT_EXPECTED_PAIRS, DEFAULT_FALSE_POSITIVE_RATE);
+	}
+
+	/**
+	 * Checks whether a pair may have been added.
+	 *
+	 * @param key key made by {@link RelationCache#toKey}
+	 * @return false if the pair has certainly not been added since the filter last started over
+	 */
+	public boolean mightContain(long key)
+	{
+		final long hash = RelationCache.mix(key);
+		final long first = hash >>> 32;
+		final long second = hash & 0xffffffffL;
+		for (int i = 0; i < _hashCount; i++)
+		{
+			final long bit = (first + i * second) % _bitCount;
+			if (0 == (_words.get((int) (bit >>> 6)) & (1L << bit)))
+			{
+				_misses.incrementAndGet();
+				return false;
+			}
+		}
+		_hits.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Adds a pair, starting over first if the filter holds the expected number of pairs.
+	 *
+	 * @param key key made by {@link RelationCache#toKey}
+	 */
+	public void add(long key)
+	{
+		if (_expectedPairs <= _size.getAndIncrement())
+		{
+			clearBits();
+			_size.set(1);
+		}
+		final long hash = RelationCache.mix(key);
+		final long first = hash >>> 32;
+		final long second = hash & 0xffffffffL;
+		for (int i = 0; i < _hashCount; i++)
+		{
+			final long bit = (first + i * second) % _bitCount;
+			final int index = (int) (bit >>> 6);
+			final long mask = 1L << bit;
+			long word = _words.get(index);
+			while (0 == (word & mask) && !_words.compareAndSet(index, word, word | mask))
+			{
+				word = _words.get(index);
+			}
+		}
+	}
+
+	public long getHitCount()
+	{
+		return _hits.get();
+	}
+
+	public long getMissCount()
+	{
+		return _misses.get();
+	}
+
+	/**
+	 * Returns the number of pairs added since the filter last started over.
+	 */
+	public int size()
+	{
+		return Math.min(_size.get(), _expectedPairs);
+	}
+
+	public long getBitCount()
+	{
+		return _bitCount;
+	}
+
+	public int getHashCount()
+	{
+		return _hashCount;
+	}
+
+	public void clear()
+	{
+		clearBits();
+		_size.set(0);
+		_hits.set(0);
+		_misses.set(0);
+	}
+
+	public String toString()
+	{
+		return "UnrelatedPairFilter[size=" + size() + ", bits=" + getBitCount() + ", hashes=" + getHashCount() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + "]";
+	}
+
+	private void clearBits()
+	{
+		for (int i = 0; i < _words.length(); i++)
+		{
+			_words.set(i, 0L);
+		}
+	}
+}
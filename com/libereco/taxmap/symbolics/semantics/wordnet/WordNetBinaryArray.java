@@ -0,0 +1,602 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import com.libereco.taxmap.symbolics.semantics.SemanticsException;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Read-only view over a WordNet synset graph compiled by {@link WordNetBinaryCompiler}.
+ * <p>
+ * The file is a header, a section directory and a sequence of sections, all little-endian.
+ * Synsets are addressed by a dense ordinal: ordinals are sorted by part of speech
+ * (noun, verb, adjective, adverb) and then by the WordNet data file offset.
+ * Every accessor reads the underlying buffer by absolute index, so lookups neither parse
+ * text nor allocate objects.
+ *
+ * @author Chiranjit Acharya
+ */
+public class WordNetBinaryArray
+{
+	private static final Logger log = Logger.getLogger(WordNetBinaryArray.class);
+
+	public static final int MAGIC = 0x574E4241;
+	// 2: holonym sections hold the transitive closure
+	public static final int VERSION = 2;
+	public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	static final int HEADER_SIZE = 12;
+	static final int DIRECTORY_ENTRY_SIZE = 16;
+
+	// section identifiers
+	static final int SECTION_POS_RANGES = 1;
+	static final int SECTION_SYNSETS = 2;
+	static final int SECTION_POINTER_ROWS = 3;
+	static final int SECTION_POINTER_TARGETS = 4;
+	static final int SECTION_POINTER_TYPES = 5;
+	static final int SECTION_SYNSET_WORDS = 6;
+	static final int SECTION_LEMMA_OFFSETS = 7;
+	static final int SECTION_LEMMA_BYTES = 8;
+	static final int SECTION_LEMMA_SENSE_ROWS = 9;
+	static final int SECTION_LEMMA_SENSES = 10;
+	static final int SECTION_EXCEPTION_ROWS = 11;
+	static final int SECTION_EXCEPTIONS = 12;
+	static final int SECTION_GLOSS_OFFSETS = 13;
+	static final int SECTION_GLOSS_BYTES = 14;
+	static final int SECTION_HYPERNYM_POST_ORDER = 15;
+	static final int SECTION_HYPERNYM_INTERVAL_ROWS = 16;
+	static final int SECTION_HYPERNYM_INTERVALS = 17;
+	static final int SECTION_HOLONYM_INTERVAL_ROWS = 18;
+	static final int SECTION_HOLONYM_INTERVALS = 19;
+	static final int SECTION_MIN_DEPTHS = 20;
+	static final int SECTION_EXAMPLE_ROWS = 21;
+	static final int SECTION_EXAMPLE_SPANS = 22;
+	static final int SECTION_ADJECTIVE_CLUSTERS = 23;
+
+	/**
+	 * Fixed-width synset record: offset (int), pos key (byte), flags (byte),
+	 * word count (short), first word index (int).
+	 */
+	static final int RECORD_SIZE = 12;
+	static final int FLAG_ADJECTIVE_CLUSTER = 0x01;
+
+	// pointer type codes, independent of the JWNL pointer type instances
+	public static final byte HYPERNYM = 0;
+	public static final byte INSTANCE_HYPERNYM = 1;
+	public static final byte HYPONYM = 2;
+	public static final byte INSTANCE_HYPONYM = 3;
+	public static final byte ANTONYM = 4;
+	public static final byte SIMILAR_TO = 5;
+	public static final byte MEMBER_HOLONYM = 6;
+	public static final byte PART_HOLONYM = 7;
+	public static final byte SUBSTANCE_HOLONYM = 8;
+	public static final byte MEMBER_MERONYM = 9;
+	public static final byte PART_MERONYM = 10;
+	public static final byte SUBSTANCE_MERONYM = 11;
+	public static final byte ENTAILMENT = 12;
+	public static final byte ENTAILED_BY = 13;
+	public static final byte CAUSE = 14;
+	public static final byte VERB_GROUP = 15;
+	public static final byte SEE_ALSO = 16;
+	public static final byte ATTRIBUTE = 17;
+	public static final byte DERIVED = 18;
+	public static final byte NOMINALIZATION = 19;
+	public static final byte PARTICIPLE_OF = 20;
+	public static final byte PERTAINYM = 21;
+	public static final byte CATEGORY = 22;
+	public static final byte CATEGORY_MEMBER = 23;
+	public static final byte REGION = 24;
+	public static final byte REGION_MEMBER = 25;
+	public static final byte USAGE = 26;
+	public static final byte USAGE_MEMBER = 27;
+	public static final int POINTER_TYPE_COUNT = 28;
+
+	/** Parts of speech in ordinal order. */
+	public static final char[] POS_KEYS = { 'n', 'v', 'a', 'r' };
+	public static final int POS_COUNT = POS_KEYS.length;
+
+	static final Charset LEMMA_CHARSET = Charset.forName("ISO-8859-1");
+	static final Charset GLOSS_CHARSET = Charset.forName("UTF-8");
+
+	private final ByteBuffer _buffer;
+
+	private final IntBuffer _posRanges;
+	private final ByteBuffer _synsets;
+	private final IntBuffer _pointerRows;
+	private final IntBuffer _pointerTargets;
+	private final ByteBuffer _pointerTypes;
+	private final IntBuffer _synsetWords;
+	private final IntBuffer _lemmaOffsets;
+	private final ByteBuffer _lemmaBytes;
+	private final IntBuffer _lemmaSenseRows;
+	private final IntBuffer _lemmaSenses;
+	private final IntBuffer _exceptionRows;
+	private final IntBuffer _exceptions;
+	private final IntBuffer _glossOffsets;
+	private final ByteBuffer _glossBytes;
+
+	private final int _synsetCount;
+	private final int _lemmaCount;
+
+	/**
+	 * Creates a view over a buffer holding a compiled synset graph.
+	 *
+	 * @param buffer compiled graph, either memory-mapped or on the heap
+	 * @throws SemanticsException if the buffer is not a compiled graph
+	 */
+	public WordNetBinaryArray(ByteBuffer buffer) throws SemanticsException
+	{
+		_buffer = buffer.duplicate().order(BYTE_ORDER);
+		if (_buffer.limit() < HEADER_SIZE || MAGIC != _buffer.getInt(0))
+		{
+			throw new SemanticsException("Not a compiled WordNet binary array");
+		}
+		final int version = _buffer.getInt(4);
+		if (VERSION != version)
+		{
+			throw new SemanticsException("Unsupported WordNet binary array version " + version + ", expected " + VERSION);
+		}
+
+		_posRanges = getIntSection(SECTION_POS_RANGES);
+		_synsets = getRequiredSection(SECTION_SYNSETS);
+		_pointerRows = getIntSection(SECTION_POINTER_ROWS);
+		_pointerTargets = getIntSection(SECTION_POINTER_TARGETS);
+		_pointerTypes = getRequiredSection(SECTION_POINTER_TYPES);
+		_synsetWords = getIntSection(SECTION_SYNSET_WORDS);
+		_lemmaOffsets = getIntSection(SECTION_LEMMA_OFFSETS);
+		_lemmaBytes = getRequiredSection(SECTION_LEMMA_BYTES);
+		_lemmaSenseRows = getIntSection(SECTION_LEMMA_SENSE_ROWS);
+		_lemmaSenses = getIntSection(SECTION_LEMMA_SENSES);
+		_exceptionRows = getIntSection(SECTION_EXCEPTION_ROWS);
+		_exceptions = getIntSection(SECTION_EXCEPTIONS);
+		_glossOffsets = getIntSection(SECTION_GLOSS_OFFSETS);
+		_glossBytes = getRequiredSection(SECTION_GLOSS_BYTES);
+
+		_synsetCount = _posRanges.get(POS_COUNT);
+		_lemmaCount = _lemmaOffsets.limit() - 1;
+	}
+
+	/**
+	 * Memory-maps a compiled synset graph.
+	 *
+	 * @param fileName compiled graph file
+	 * @return read-only view over the mapped file
+	 * @throws SemanticsException
+	 */
+	public static WordNetBinaryArray map(String fileName) throws SemanticsException
+	{
+		try
+		{
+			RandomAccessFile file = new RandomAccessFile(fileName, "r");
+			try
+			{
+				FileChannel channel = file.getChannel();
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				log.info("Mapped WordNet binary array " + fileName + " (" + channel.size() + " bytes)");
+				return new WordNetBinaryArray(buffer);
+			}
+			finally
+			{
+				file.close();
+			}
+		}
+		catch (IOException e)
+		{
+			final String errorString = e.getClass().getSimpleName() + ": " + e.getMessage();
+			log.error(errorString, e);
+			throw new SemanticsException(errorString, e);
+		}
+	}
+
+	// -------------------- SECTIONS ----------------------------
+
+	/**
+	 * Returns a read-only view of a section, or null if the file does not contain it.
+	 */
+	ByteBuffer getSection(int sectionId)
+	{
+		final int sectionCount = _buffer.getInt(8);
+		for (int i = 0; i < sectionCount; i++)
+		{
+			final int entry = HEADER_SIZE + i * DIRECTORY_ENTRY_SIZE;
+			if (sectionId == _buffer.getInt(entry))
+			{
+				final int length = _buffer.getInt(entry + 4);
+				final int offset = (int) _buffer.getLong(entry + 8);
+				ByteBuffer section = _buffer.duplicate();
+				section.position(offset);
+				section.limit(offset + length);
+				return section.slice().asReadOnlyBuffer().order(BYTE_ORDER);
+			}
+		}
+		return null;
+	}
+
+	IntBuffer getIntSection(int sectionId) throws SemanticsException
+	{
+		return getRequiredSection(sectionId).asIntBuffer();
+	}
+
+	private ByteBuffer getRequiredSection(int sectionId) throws SemanticsException
+	{
+		ByteBuffer section = getSection(sectionId);
+		if (null == section)
+		{
+			throw new SemanticsException("WordNet binary array has no section " + sectionId);
+		}
+		return section;
+	}
+
+	// -------------------- PARTS OF SPEECH ----------------------------
+
+	/**
+	 * Returns the index of a part of speech key in ordinal order, or -1 if the key is unknown.
+	 * Adjective satellites share the adjective index.
+	 */
+	public static int getPosIndex(char posKey)
+	{
+		switch (posKey)
+		{
+		case 'n':
+			return 0;
+		case 'v':
+			return 1;
+		case 'a':
+		case 's':
+			return 2;
+		case 'r':
+			return 3;
+		default:
+			return -1;
+		}
+	}
+
+	public int getPosStart(int posIndex)
+	{
+		return _posRanges.get(posIndex);
+	}
+
+	public int getPosEnd(int posIndex)
+	{
+		return _posRanges.get(posIndex + 1);
+	}
+
+	// -------------------- SYNSETS ----------------------------
+
+	public int getSynsetCount()
+	{
+		return _synsetCount;
+	}
+
+	/**
+	 * Returns the ordinal of the synset at a data file offset, or -1 if there is none.
+	 *
+	 * @param posKey part of speech key
+	 * @param offset data file offset
+	 * @return synset ordinal
+	 */
+	public int getOrdinal(char posKey, long offset)
+	{
+		final int posIndex = getPosIndex(posKey);
+		if (0 > posIndex)
+		{
+			return -1;
+		}
+		int low = getPosStart(posIndex);
+		int high = getPosEnd(posIndex) - 1;
+		while (low <= high)
+		{
+			final int middle = (low + high) >>> 1;
+			final long middleOffset = getOffset(middle);
+			if (middleOffset < offset)
+			{
+				low = middle + 1;
+			}
+			else if (middleOffset > offset)
+			{
+				high = middle - 1;
+			}
+			else
+			{
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	public long getOffset(int ordinal)
+	{
+		return _synsets.getInt(ordinal * RECORD_SIZE) & 0xFFFFFFFFL;
+	}
+
+	public char getPosKey(int ordinal)
+	{
+		return (char) _synsets.get(ordinal * RECORD_SIZE + 4);
+	}
+
+	public boolean isAdjectiveCluster(int ordinal)
+	{
+		return 0 != (_synsets.get(ordinal * RECORD_SIZE + 5) & FLAG_ADJECTIVE_CLUSTER);
+	}
+
+	public int getWordCount(int ordinal)
+	{
+		return _synsets.getShort(ordinal * RECORD_SIZE + 6);
+	}
+
+	/**
+	 * Returns the lemma id of the index-th word of a synset.
+	 */
+	public int getWord(int ordinal, int index)
+	{
+		return _synsetWords.get(_synsets.getInt(ordinal * RECORD_SIZE + 8) + index);
+	}
+
+	// -------------------- POINTERS ----------------------------
+
+	/**
+	 * Returns the first pointer index of a synset. Pointers of a synset are sorted by type.
+	 */
+	public int getPointerStart(int ordinal)
+	{
+		return _pointerRows.get(ordinal);
+	}
+
+	public int getPointerEnd(int ordinal)
+	{
+		return _pointerRows.get(ordinal + 1);
+	}
+
+	public int getPointerTarget(int pointer)
+	{
+		return _pointerTargets.get(pointer);
+	}
+
+	public byte getPointerType(int pointer)
+	{
+		return _pointerTypes.get(pointer);
+	}
+
+	/**
+	 * Returns the first pointer index of a synset with the given type. Within a type,
+	 * pointers are sorted by target.
+	 */
+	public int getPointerStart(int ordinal, byte type)
+	{
+		return findType(getPointerStart(ordinal), getPointerEnd(ordinal), type);
+	}
+
+	public int getPointerEnd(int ordinal, byte type)
+	{
+		return findType(getPointerStart(ordinal, type), getPointerEnd(ordinal), type + 1);
+	}
+
+	/**
+	 * Returns the targets of the pointers of a synset with the given type as a read-only
+	 * view of the pointer targets, which copies nothing.
+	 */
+	public IntBuffer getPointerTargets(int ordinal, byte type)
+	{
+		final int start = getPointerStart(ordinal, type);
+		final int end = getPointerEnd(ordinal, type);
+		IntBuffer targets = _pointerTargets.asReadOnlyBuffer();
+		targets.limit(end).position(start);
+		return targets.slice();
+	}
+
+	/**
+	 * Checks whether a synset has a pointer of the given type to the target synset.
+	 */
+	public boolean hasPointer(int ordinal, byte type, int target)
+	{
+		int low = getPointerStart(ordinal, type);
+		int high = getPointerEnd(ordinal, type) - 1;
+		while (low <= high)
+		{
+			final int middle = (low + high) >>> 1;
+			final int found = getPointerTarget(middle);
+			if (found < target)
+			{
+				low = middle + 1;
+			}
+			else if (found > target)
+			{
+				high = middle - 1;
+			}
+			else
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the first pointer index from start to end whose type is not below the given
+	 * type, or end.
+	 */
+	private int findType(int start, int end, int type)
+	{
+		int low = start;
+		int high = end;
+		while (low < high)
+		{
+			final int middle = (low + high) >>> 1;
+			if (getPointerType(middle) < type)
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	// -------------------- LEMMAS ----------------------------
+
+	public int getLemmaCount()
+	{
+		return _lemmaCount;
+	}
+
+	public String getLemma(int lemmaId)
+	{
+		final int start = _lemmaOffsets.get(lemmaId);
+		final int end = _lemmaOffsets.get(lemmaId + 1);
+		char[] chars = new char[end - start];
+		for (int i = start; i < end; i++)
+		{
+			chars[i - start] = (char) (_lemmaBytes.get(i) & 0xFF);
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Finds a lemma the way WordNet index files spell it: lower case with underscores
+	 * for blanks. The query is normalized while it is compared, so nothing is allocated.
+	 *
+	 * @param word surface form
+	 * @return lemma id, or -1 if the lemma is not in the table
+	 */
+	public int findLemma(CharSequence word)
+	{
+		int low = 0;
+		int high = _lemmaCount - 1;
+		while (low <= high)
+		{
+			final int middle = (low + high) >>> 1;
+			final int comparison = compareLemma(middle, word);
+			if (comparison < 0)
+			{
+				low = middle + 1;
+			}
+			else if (comparison > 0)
+			{
+				high = middle - 1;
+			}
+			else
+			{
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	private int compareLemma(int lemmaId, CharSequence word)
+	{
+		final int start = _lemmaOffsets.get(lemmaId);
+		final int length = _lemmaOffsets.get(lemmaId + 1) - start;
+		final int wordLength = word.length();
+		final int common = Math.min(length, wordLength);
+		for (int i = 0; i < common; i++)
+		{
+			final int lemmaChar = _lemmaBytes.get(start + i) & 0xFF;
+			final int wordChar = normalizeChar(word.charAt(i));
+			if (lemmaChar != wordChar)
+			{
+				return lemmaChar - wordChar;
+			}
+		}
+		return length - wordLength;
+	}
+
+	static char normalizeChar(char c)
+	{
+		return ' ' == c ? '_' : Character.toLowerCase(c);
+	}
+
+	/**
+	 * Returns the first sense index of a lemma for a part of speech.
+	 * Senses of a lemma are kept in WordNet sense order, most frequent first.
+	 */
+	public int getSenseStart(int lemmaId, int posIndex)
+	{
+		return _lemmaSenseRows.get(lemmaId * POS_COUNT + posIndex);
+	}
+
+	public int getSenseEnd(int lemmaId, int posIndex)
+	{
+		return _lemmaSenseRows.get(lemmaId * POS_COUNT + posIndex + 1);
+	}
+
+	public int getSense(int sense)
+	{
+		return _lemmaSenses.get(sense);
+	}
+
+	/**
+	 * Returns the first base form index of an irregular inflected form for a part of speech.
+	 */
+	public int getExceptionStart(int lemmaId, int posIndex)
+	{
+		return _exceptionRows.get(lemmaId * POS_COUNT + posIndex);
+	}
+
+	public int getExceptionEnd(int lemmaId, int posIndex)
+	{
+		return _exceptionRows.get(lemmaId * POS_COUNT + posIndex + 1);
+	}
+
+	/**
+	 * Returns the lemma id of a base form in the exception table.
+	 */
+	public int getException(int exception)
+	{
+		return _exceptions.get(exception);
+	}
+
+	// -------------------- GLOSSES ----------------------------
+
+	/**
+	 * Returns the first byte of the gloss of a synset in {@link #getGlossBytes()}.
+	 */
+	public int getGlossStart(int ordinal)
+	{
+		return _glossOffsets.get(ordinal);
+	}
+
+	public int getGlossEnd(int ordinal)
+	{
+		return _glossOffsets.get(ordinal + 1);
+	}
+
+	/**
+	 * Returns a read-only view of the UTF-8 bytes of all glosses.
+	 */
+	public ByteBuffer getGlossBytes()
+	{
+		return _glossBytes.duplicate();
+	}
+
+	public String getGloss(int ordinal)
+	{
+		final int start = _glossOffsets.get(ordinal);
+		final int end = _glossOffsets.get(ordinal + 1);
+		if (start == end)
+		{
+			return null;
+		}
+		byte[] bytes = new byte[end - start];
+		ByteBuffer gloss = _glossBytes.duplicate();
+		gloss.position(start);
+		gloss.get(bytes);
+		return new String(bytes, GLOSS_CHARSET);
+	}
+}
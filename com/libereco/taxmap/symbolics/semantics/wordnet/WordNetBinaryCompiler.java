@@ -0,0 +1,606 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.libereco.taxmap.symbolics.semantics.SemanticsException;
+
+import net.didion.jwnl.JWNL;
+import net.didion.jwnl.JWNLException;
+import net.didion.jwnl.data.Exc;
+import net.didion.jwnl.data.IndexWord;
+import net.didion.jwnl.data.POS;
+import net.didion.jwnl.data.Pointer;
+import net.didion.jwnl.data.PointerType;
+import net.didion.jwnl.data.Synset;
+import net.didion.jwnl.data.Word;
+import net.didion.jwnl.dictionary.Dictionary;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Offline compiler turning a WordNet installation into a single {@link WordNetBinaryArray} file.
+ * <p>
+ * Usage: <code>WordNetBinaryCompiler &lt;JWNL properties file&gt; &lt;output file&gt;</code>
+ *
+ * @author Chiranjit Acharya
+ */
+public class WordNetBinaryCompiler
+{
+	private static final Logger log = Logger.getLogger(WordNetBinaryCompiler.class);
+
+	private static final String USAGE = "Usage: WordNetBinaryCompiler <JWNL properties file> <output file>";
+
+	private static final POS[] POS_ORDER = { POS.NOUN, POS.VERB, POS.ADJECTIVE, POS.ADVERB };
+
+	private static final Map<PointerType, Byte> POINTER_CODES = new HashMap<PointerType, Byte>();
+
+	static
+	{
+		POINTER_CODES.put(PointerType.HYPERNYM, WordNetBinaryArray.HYPERNYM);
+		POINTER_CODES.put(PointerType.INSTANCE_HYPERNYM, WordNetBinaryArray.INSTANCE_HYPERNYM);
+		POINTER_CODES.put(PointerType.HYPONYM, WordNetBinaryArray.HYPONYM);
+		POINTER_CODES.put(PointerType.INSTANCES_HYPONYM, WordNetBinaryArray.INSTANCE_HYPONYM);
+		POINTER_CODES.put(PointerType.ANTONYM, WordNetBinaryArray.ANTONYM);
+		POINTER_CODES.put(PointerType.SIMILAR_TO, WordNetBinaryArray.SIMILAR_TO);
+		POINTER_CODES.put(PointerType.MEMBER_HOLONYM, WordNetBinaryArray.MEMBER_HOLONYM);
+		POINTER_CODES.put(PointerType.PART_HOLONYM, WordNetBinaryArray.PART_HOLONYM);
+		POINTER_CODES.put(PointerType.SUBSTANCE_HOLONYM, WordNetBinaryArray.SUBSTANCE_HOLONYM);
+		POINTER_CODES.put(PointerType.MEMBER_MERONYM, WordNetBinaryArray.MEMBER_MERONYM);
+		POINTER_CODES.put(PointerType.PART_MERONYM, WordNetBinaryArray.PART_MERONYM);
+		POINTER_CODES.put(PointerType.SUBSTANCE_MERONYM, WordNetBinaryArray.SUBSTANCE_MERONYM);
+		POINTER_CODES.put(PointerType.ENTAILMENT, WordNetBinaryArray.ENTAILMENT);
+		POINTER_CODES.put(PointerType.ENTAILED_BY, WordNetBinaryArray.ENTAILED_BY);
+		POINTER_CODES.put(PointerType.CAUSE, WordNetBinaryArray.CAUSE);
+		POINTER_CODES.put(PointerType.VERB_GROUP, WordNetBinaryArray.VERB_GROUP);
+		POINTER_CODES.put(PointerType.SEE_ALSO, WordNetBinaryArray.SEE_ALSO);
+		POINTER_CODES.put(PointerType.ATTRIBUTE, WordNetBinaryArray.ATTRIBUTE);
+		POINTER_CODES.put(PointerType.DERIVED, WordNetBinaryArray.DERIVED);
+		POINTER_CODES.put(PointerType.NOMINALIZATION, WordNetBinaryArray.NOMINALIZATION);
+		POINTER_CODES.put(PointerType.PARTICIPLE_OF, WordNetBinaryArray.PARTICIPLE_OF);
+		POINTER_CODES.put(PointerType.PERTAINYM, WordNetBinaryArray.PERTAINYM);
+		POINTER_CODES.put(PointerType.CATEGORY, WordNetBinaryArray.CATEGORY);
+		POINTER_CODES.put(PointerType.CATEGORY_MEMBER, WordNetBinaryArray.CATEGORY_MEMBER);
+		POINTER_CODES.put(PointerType.REGION, WordNetBinaryArray.REGION);
+		POINTER_CODES.put(PointerType.REGION_MEMBER, WordNetBinaryArray.REGION_MEMBER);
+		POINTER_CODES.put(PointerType.USAGE, WordNetBinaryArray.USAGE);
+		POINTER_CODES.put(PointerType.USAGE_MEMBER, WordNetBinaryArray.USAGE_MEMBER);
+	}
+
+	private final Dictionary _dictionary;
+
+	// synsets in ordinal order
+	private final List<Synset> _synsetList = new ArrayList<Synset>();
+	// (pos index, offset) keys mapped to ordinals
+	private final Map<Long, Integer> _ordinalMap = new HashMap<Long, Integer>();
+	// all lemma strings, sorted by their Latin-1 bytes
+	private final TreeSet<String> _lemmaSet = new TreeSet<String>();
+
+	public WordNetBinaryCompiler(Dictionary dictionary)
+	{
+		_dictionary = dictionary;
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		if (2 != args.length)
+		{
+			System.out.println(USAGE);
+			System.exit(-1);
+		}
+		JWNL.initialize(new FileInputStream(args[0]));
+		new WordNetBinaryCompiler(Dictionary.getInstance()).compile(args[1]);
+	}
+
+	/**
+	 * Compiles the dictionary into a file.
+	 *
+	 * @param fileName output file
+	 * @throws SemanticsException
+	 */
+	public void compile(String fileName) throws SemanticsException
+	{
+		try
+		{
+			log.info("Reading synsets...");
+			readSynsets();
+			log.info("Reading lemmas...");
+			Map<String, List<long[]>> indexWords = readIndexWords();
+			Map<String, List<String>[]> exceptions = readExceptions();
+			log.info("Synsets: " + _synsetList.size() + ", lemmas: " + _lemmaSet.size());
+
+			String[] lemmas = _lemmaSet.toArray(new String[_lemmaSet.size()]);
+			Map<String, Integer> lemmaIds = new HashMap<String, Integer>(lemmas.length * 2);
+			for (int i = 0; i < lemmas.length; i++)
+			{
+				lemmaIds.put(lemmas[i], i);
+			}
+
+			Map<Integer, ByteBuffer> sections = new TreeMap<Integer, ByteBuffer>();
+			writePosRanges(sections);
+			writeSynsets(sections, lemmaIds);
+			writePointers(sections);
+			writeLemmas(sections, lemmas);
+			writeLemmaSenses(sections, lemmas, indexWords);
+			writeExceptions(sections, lemmas, lemmaIds, exceptions);
+			writeGlosses(sections);
+			log.info("Building closure indexes...");
+			writeIndexes(sections);
+
+			log.info("Writing " + fileName + "...");
+			writeFile(fileName, sections);
+			log.info("Writing " + fileName + " finished");
+		}
+		catch (JWNLException e)
+		{
+			final String errorString = e.getClass().getSimpleName() + ": " + e.getMessage();
+			log.error(errorString, e);
+			throw new SemanticsException(errorString, e);
+		}
+		catch (IOException e)
+		{
+			final String errorString = e.getClass().getSimpleName() + ": " + e.getMessage();
+			log.error(errorString, e);
+			throw new SemanticsException(errorString, e);
+		}
+	}
+
+	// -------------------- READING ----------------------------
+
+	private void readSynsets() throws JWNLException
+	{
+		for (int p = 0; p < POS_ORDER.length; p++)
+		{
+			List<Synset> posSynsets = new ArrayList<Synset>();
+			for (Iterator i = _dictionary.getSynsetIterator(POS_ORDER[p]); i.hasNext();)
+			{
+				posSynsets.add((Synset) i.next());
+			}
+			Synset[] sorted = posSynsets.toArray(new Synset[posSynsets.size()]);
+			Arrays.sort(sorted, new Comparator<Synset>()
+			{
+				public int compare(Synset synset1, Synset synset2)
+				{
+					return synset1.getOffset() < synset2.getOffset() ? -1 : (synset1.getOffset() == synset2.getOffset() ? 0 : 1);
+				}
+			});
+			for (Synset synset : sorted)
+			{
+				_ordinalMap.put(toKey(p, synset.getOffset()), _synsetList.size());
+				_synsetList.add(synset);
+				for (Word word : synset.getWords())
+				{
+					_lemmaSet.add(normalize(word.getLemma()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns, per lemma, the synset offsets of its index words for each part of speech.
+	 */
+	private Map<String, List<long[]>> readIndexWords() throws JWNLException
+	{
+		Map<String, List<long[]>> indexWords = new HashMap<String, List<long[]>>();
+		for (int p = 0; p < POS_ORDER.length; p++)
+		{
+			for (Iterator i = _dictionary.getIndexWordIterator(POS_ORDER[p]); i.hasNext();)
+			{
+				IndexWord indexWord = (IndexWord) i.next();
+				final String lemma = normalize(indexWord.getLemma());
+				List<long[]> offsets = indexWords.get(lemma);
+				if (null == offsets)
+				{
+					offsets = new ArrayList<long[]>(Arrays.asList(new long[POS_ORDER.length][]));
+					indexWords.put(lemma, offsets);
+					_lemmaSet.add(lemma);
+				}
+				offsets.set(p, indexWord.getSynsetOffsets());
+			}
+		}
+		return indexWords;
+	}
+
+	/**
+	 * Returns, per irregular inflected form, its base forms for each part of speech.
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<String, List<String>[]> readExceptions() throws JWNLException
+	{
+		Map<String, List<String>[]> exceptions = new HashMap<String, List<String>[]>();
+		for (int p = 0; p < POS_ORDER.length; p++)
+		{
+			for (Iterator i = _dictionary.getExceptionIterator(POS_ORDER[p]); i.hasNext();)
+			{
+				Exc exception = (Exc) i.next();
+				final String lemma = normalize(exception.getLemma());
+				List<String>[] baseForms = exceptions.get(lemma);
+				if (null == baseForms)
+				{
+					baseForms = new List[POS_ORDER.length];
+					exceptions.put(lemma, baseForms);
+					_lemmaSet.add(lemma);
+				}
+				baseForms[p] = new ArrayList<String>();
+				for (Object baseForm : exception.getExceptions())
+				{
+					baseForms[p].add(normalize((String) baseForm));
+					_lemmaSet.add(normalize((String) baseForm));
+				}
+			}
+		}
+		return exceptions;
+	}
+
+	// -------------------- SECTIONS ----------------------------
+
+	private void writePosRanges(Map<Integer, ByteBuffer> sections)
+	{
+		int[] ranges = new int[POS_ORDER.length + 1];
+		int p = 0;
+		for (int ordinal = 0; ordinal < _synsetList.size(); ordinal++)
+		{
+			final int posIndex = getPosIndex(_synsetList.get(ordinal).getPOS());
+			while (p < posIndex)
+			{
+				ranges[++p] = ordinal;
+			}
+		}
+		while (p < POS_ORDER.length)
+		{
+			ranges[++p] = _synsetList.size();
+		}
+		sections.put(WordNetBinaryArray.SECTION_POS_RANGES, toBuffer(ranges));
+	}
+
+	private void writeSynsets(Map<Integer, ByteBuffer> sections, Map<String, Integer> lemmaIds)
+	{
+		ByteBuffer records = allocate(_synsetList.size() * WordNetBinaryArray.RECORD_SIZE);
+		IntList words = new IntList();
+		for (Synset synset : _synsetList)
+		{
+			records.putInt((int) synset.getOffset());
+			records.put((byte) synset.getPOS().getKey().charAt(0));
+			records.put((byte) (synset.isAdjectiveCluster() ? WordNetBinaryArray.FLAG_ADJECTIVE_CLUSTER : 0));
+			records.putShort((short) synset.getWordsSize());
+			records.putInt(words.size());
+			for (Word word : synset.getWords())
+			{
+				words.add(lemmaIds.get(normalize(word.getLemma())));
+			}
+		}
+		records.flip();
+		sections.put(WordNetBinaryArray.SECTION_SYNSETS, records);
+		sections.put(WordNetBinaryArray.SECTION_SYNSET_WORDS, toBuffer(words.toArray()));
+	}
+
+	/**
+	 * Writes the pointer graph in compressed sparse row form, each row sorted by pointer type
+	 * and target ordinal. Lexical pointers are resolved to their target synsets.
+	 */
+	private void writePointers(Map<Integer, ByteBuffer> sections)
+	{
+		int[] rows = new int[_synsetList.size() + 1];
+		IntList targets = new IntList();
+		IntList types = new IntList();
+		for (int ordinal = 0; ordinal < _synsetList.size(); ordinal++)
+		{
+			rows[ordinal] = targets.size();
+			List<long[]> row = new ArrayList<long[]>();
+			for (Pointer pointer : _synsetList.get(ordinal).getPointers())
+			{
+				Byte code = POINTER_CODES.get(pointer.getType());
+				Integer target = _ordinalMap.get(toKey(getPosIndex(pointer.getTargetPOS()), pointer.getTargetOffset()));
+				if (null == code || null == target)
+				{
+					continue;
+				}
+				long[] entry = { code, target };
+				boolean duplicate = false;
+				for (long[] existing : row)
+				{
+					duplicate |= existing[0] == entry[0] && existing[1] == entry[1];
+				}
+				if (!duplicate)
+				{
+					row.add(entry);
+				}
+			}
+			long[][] sorted = row.toArray(new long[row.size()][]);
+			Arrays.sort(sorted, new Comparator<long[]>()
+			{
+				public int compare(long[] entry1, long[] entry2)
+				{
+					if (entry1[0] != entry2[0])
+					{
+						return entry1[0] < entry2[0] ? -1 : 1;
+					}
+					return entry1[1] < entry2[1] ? -1 : (entry1[1] == entry2[1] ? 0 : 1);
+				}
+			});
+			for (long[] entry : sorted)
+			{
+				types.add((int) entry[0]);
+				targets.add((int) entry[1]);
+			}
+		}
+		rows[_synsetList.size()] = targets.size();
+
+		ByteBuffer typeBuffer = allocate(types.size());
+		for (int i = 0; i < types.size(); i++)
+		{
+			typeBuffer.put((byte) types.get(i));
+		}
+		typeBuffer.flip();
+
+		sections.put(WordNetBinaryArray.SECTION_POINTER_ROWS, toBuffer(rows));
+		sections.put(WordNetBinaryArray.SECTION_POINTER_TARGETS, toBuffer(targets.toArray()));
+		sections.put(WordNetBinaryArray.SECTION_POINTER_TYPES, typeBuffer);
+	}
+
+	private void writeLemmas(Map<Integer, ByteBuffer> sections, String[] lemmas)
+	{
+		int[] offsets = new int[lemmas.length + 1];
+		int size = 0;
+		for (int i = 0; i < lemmas.length; i++)
+		{
+			offsets[i] = size;
+			size += lemmas[i].length();
+		}
+		offsets[lemmas.length] = size;
+
+		ByteBuffer bytes = allocate(size);
+		for (String lemma : lemmas)
+		{
+			bytes.put(lemma.getBytes(WordNetBinaryArray.LEMMA_CHARSET));
+		}
+		bytes.flip();
+
+		sections.put(WordNetBinaryArray.SECTION_LEMMA_OFFSETS, toBuffer(offsets));
+		sections.put(WordNetBinaryArray.SECTION_LEMMA_BYTES, bytes);
+	}
+
+	private void writeLemmaSenses(Map<Integer, ByteBuffer> sections, String[] lemmas, Map<String, List<long[]>> indexWords)
+	{
+		int[] rows = new int[lemmas.length * POS_ORDER.length + 1];
+		IntList senses = new IntList();
+		for (int lemmaId = 0; lemmaId < lemmas.length; lemmaId++)
+		{
+			List<long[]> offsets = indexWords.get(lemmas[lemmaId]);
+			for (int p = 0; p < POS_ORDER.length; p++)
+			{
+				rows[lemmaId * POS_ORDER.length + p] = senses.size();
+				if (null != offsets && null != offsets.get(p))
+				{
+					for (long offset : offsets.get(p))
+					{
+						Integer ordinal = _ordinalMap.get(toKey(p, offset));
+						if (null != ordinal)
+						{
+							senses.add(ordinal);
+						}
+					}
+				}
+			}
+		}
+		rows[rows.length - 1] = senses.size();
+		sections.put(WordNetBinaryArray.SECTION_LEMMA_SENSE_ROWS, toBuffer(rows));
+		sections.put(WordNetBinaryArray.SECTION_LEMMA_SENSES, toBuffer(senses.toArray()));
+	}
+
+	private void writeExceptions(Map<Integer, ByteBuffer> sections, String[] lemmas, Map<String, Integer> lemmaIds, Map<String, List<String>[]> exceptions)
+	{
+		int[] rows = new int[lemmas.length * POS_ORDER.length + 1];
+		IntList baseForms = new IntList();
+		for (int lemmaId = 0; lemmaId < lemmas.length; lemmaId++)
+		{
+			List<String>[] forms = exceptions.get(lemmas[lemmaId]);
+			for (int p = 0; p < POS_ORDER.length; p++)
+			{
+				rows[lemmaId * POS_ORDER.length + p] = baseForms.size();
+				if (null != forms && null != forms[p])
+				{
+					for (String form : forms[p])
+					{
+						baseForms.add(lemmaIds.get(form));
+					}
+				}
+			}
+		}
+		rows[rows.length - 1] = baseForms.size();
+		sections.put(WordNetBinaryArray.SECTION_EXCEPTION_ROWS, toBuffer(rows));
+		sections.put(WordNetBinaryArray.SECTION_EXCEPTIONS, toBuffer(baseForms.toArray()));
+	}
+
+	private void writeGlosses(Map<Integer, ByteBuffer> sections)
+	{
+		int[] offsets = new int[_synsetList.size() + 1];
+		List<byte[]> glosses = new ArrayList<byte[]>(_synsetList.size());
+		int size = 0;
+		for (int ordinal = 0; ordinal < _synsetList.size(); ordinal++)
+		{
+			offsets[ordinal] = size;
+			String gloss = _synsetList.get(ordinal).getGloss();
+			byte[] bytes = null == gloss ? new byte[0] : gloss.getBytes(WordNetBinaryArray.GLOSS_CHARSET);
+			glosses.add(bytes);
+			size += bytes.length;
+		}
+		offsets[_synsetList.size()] = size;
+
+		ByteBuffer bytes = allocate(size);
+		for (byte[] gloss : glosses)
+		{
+			bytes.put(gloss);
+		}
+		bytes.flip();
+
+		sections.put(WordNetBinaryArray.SECTION_GLOSS_OFFSETS, toBuffer(offsets));
+		sections.put(WordNetBinaryArray.SECTION_GLOSS_BYTES, bytes);
+	}
+
+	/**
+	 * Derives the closure indexes, example spans and adjective clusters from the base
+	 * sections, through an in-memory view of them.
+	 */
+	private static void writeIndexes(Map<Integer, ByteBuffer> sections) throws SemanticsException
+	{
+		WordNetBinaryArray array = new WordNetBinaryArray(assemble(sections));
+		HypernymClosureIndex hypernymIndex = HypernymClosureIndex.build(array);
+		hypernymIndex.writeSections(sections);
+		HolonymClosureIndex.build(array, hypernymIndex).writeSections(sections);
+		SynsetDepthTable.build(array).writeSections(sections);
+		GlossStore.build(array).writeSections(sections);
+		AdjectiveClusterIndex.build(array).writeSections(sections);
+	}
+
+	// -------------------- FILE ----------------------------
+
+	/**
+	 * Lays out the header, the section directory and the 8-byte aligned sections.
+	 */
+	static ByteBuffer assemble(Map<Integer, ByteBuffer> sections)
+	{
+		long size = WordNetBinaryArray.HEADER_SIZE + sections.size() * WordNetBinaryArray.DIRECTORY_ENTRY_SIZE;
+		for (ByteBuffer section : sections.values())
+		{
+			size = align(size) + section.remaining();
+		}
+		if (size > Integer.MAX_VALUE)
+		{
+			throw new IllegalStateException("WordNet binary array exceeds 2GB: " + size);
+		}
+
+		ByteBuffer file = allocate((int) size);
+		file.putInt(WordNetBinaryArray.MAGIC);
+		file.putInt(WordNetBinaryArray.VERSION);
+		file.putInt(sections.size());
+
+		long offset = WordNetBinaryArray.HEADER_SIZE + sections.size() * WordNetBinaryArray.DIRECTORY_ENTRY_SIZE;
+		for (Map.Entry<Integer, ByteBuffer> section : sections.entrySet())
+		{
+			offset = align(offset);
+			file.putInt(section.getKey());
+			file.putInt(section.getValue().remaining());
+			file.putLong(offset);
+			offset += section.getValue().remaining();
+		}
+		for (ByteBuffer section : sections.values())
+		{
+			file.position((int) align(file.position()));
+			file.put(section.duplicate());
+		}
+		file.position(0);
+		return file;
+	}
+
+	private static void writeFile(String fileName, Map<Integer, ByteBuffer> sections) throws IOException
+	{
+		ByteBuffer file = assemble(sections);
+		FileOutputStream output = new FileOutputStream(fileName);
+		try
+		{
+			FileChannel channel = output.getChannel();
+			while (file.hasRemaining())
+			{
+				channel.write(file);
+			}
+		}
+		finally
+		{
+			output.close();
+		}
+	}
+
+	private static long align(long offset)
+	{
+		return (offset + 7) & ~7L;
+	}
+
+	static ByteBuffer allocate(int size)
+	{
+		return ByteBuffer.allocate(size).order(WordNetBinaryArray.BYTE_ORDER);
+	}
+
+	static ByteBuffer toBuffer(int[] values)
+	{
+		ByteBuffer buffer = allocate(values.length * 4);
+		buffer.asIntBuffer().put(values);
+		return buffer;
+	}
+
+	private static long toKey(int posIndex, long offset)
+	{
+		return ((long) posIndex << 32) | offset;
+	}
+
+	/**
+	 * Spells a lemma the way index files do, so that {@link WordNetBinaryArray#findLemma} finds it.
+	 */
+	private static String normalize(String lemma)
+	{
+		StringBuilder normalized = new StringBuilder(lemma.length());
+		for (int i = 0; i < lemma.length(); i++)
+		{
+			normalized.append(WordNetBinaryArray.normalizeChar(lemma.charAt(i)));
+		}
+		return normalized.toString();
+	}
+
+	private static int getPosIndex(POS pos)
+	{
+		return WordNetBinaryArray.getPosIndex(pos.getKey().charAt(0));
+	}
+
+	/**
+	 * Growable int array.
+	 */
+	static class IntList
+	{
+		private int[] _values = new int[1024];
+		private int _size = 0;
+
+		void add(int value)
+		{
+			if (_size == _values.length)
+			{
+				_values = Arrays.copyOf(_values, _size * 2);
+			}
+			_values[_size++] = value;
+		}
+
+		int get(int index)
+		{
+			return _values[index];
+		}
+
+		int size()
+		{
+			return _size;
+		}
+
+		int[] toArray()
+		{
+			return Arrays.copyOf(_values, _size);
+		}
+	}
+}
@@ -13,16 +13,22 @@ import java.awt.event.WindowEvent;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import net.didion.jwnl.JWNL;
 import net.didion.jwnl.JWNLException;
@@ -44,6 +50,10 @@ import net.didion.jwnl.data.relationship.RelationshipList;
 import net.didion.jwnl.dictionary.Dictionary;
 import net.didion.jwnl.dictionary.FileBackedDictionary;
 
+import com.libereco.taxmap.symbolics.data.ling.SenseIdCodec;
+import com.libereco.taxmap.symbolics.semantics.SemanticsException;
+import com.libereco.taxmap.symbolics.util.BoundedCache;
+
 /**
  * Provides library support for application access to Wordnet.
  * @author Chiranjit Acharya
@@ -71,6 +81,10 @@ public class WordNetCore implements IWordNetCore
 
 	private static final String ROOT = "entity";
 
+	// pointer types JWNL's PointerUtils joins for meronyms and holonyms
+	private static final byte[] MERONYM_TYPES = { WordNetBinaryArray.PART_MERONYM, WordNetBinaryArray.MEMBER_MERONYM, WordNetBinaryArray.SUBSTANCE_MERONYM };
+	private static final byte[] HOLONYM_TYPES = { WordNetBinaryArray.PART_HOLONYM, WordNetBinaryArray.MEMBER_HOLONYM, WordNetBinaryArray.SUBSTANCE_HOLONYM };
+
 	/** @invisible */
 	public static String m_WordNetHome;
 	public static String m_ConfigFile;
@@ -84,6 +98,29 @@ public class WordNetCore implements IWordNetCore
 	protected boolean m_DiscardCompoundWord = true;
 	protected boolean m_DiscardUpperCase = true;
 
+	// optional compiled synset graph and the tables derived from it
+	protected WordNetBinaryArray m_BinaryArray;
+	protected SynsetDepthTable m_DepthTable;
+	protected LowestCommonAncestorIndex m_AncestorIndex;
+	protected GlossStore m_GlossStore;
+
+	// base forms by part of speech and token; an empty array stands for none
+	public static final int DEFAULT_STEM_CACHE_SIZE = 1 << 16;
+	private static final String[] NO_STEMS = new String[0];
+	protected BoundedCache<String, String[]> m_StemCache = new BoundedCache<String, String[]>(DEFAULT_STEM_CACHE_SIZE);
+
+	// lemma indexes for pattern and anagram queries, one per part of speech, built on
+	// first use and shared by all instances since they all read the same dictionary;
+	// built under the array's lock, read without it once published
+	protected static final AtomicReferenceArray<LemmaPatternIndex> m_LemmaIndexes = new AtomicReferenceArray<LemmaPatternIndex>(4);
+
+	// sampling tables for random words and examples, by part of speech and filter
+	protected static final int SAMPLE_WORDS = 0;
+	protected static final int SAMPLE_STEMS = 1;
+	protected static final int SAMPLE_EXAMPLES = 2;
+	protected static final ConcurrentHashMap m_Samplers = new ConcurrentHashMap();
+	protected Random m_Random = new Random();
+
 	static
 	{
 		SLASH = System.getProperty("file.separator");
@@ -326,6 +363,24 @@ public class WordNetCore implements IWordNetCore
 		return GetSoundsLike(pattern, PartsOfSpeech, Integer.MAX_VALUE);
 	}
 
+	/**
+	 * Returns up to <code>maxResults</code> of the specified <code>PartsOfSpeech</code>
+	 * whose soundex code is within <code>maxDistance</code> edits of the code of the
+	 * given <code>Unigram</code>, closest codes first.
+	 * <p>
+	 * Example: 'robert' (R163) with a distance of 1 returns 'rupert' (R163), then
+	 * 'rubber' (R160) and 'robust' (R123), but not 'rabbit' (R130), two edits away
+	 * 
+	 * @param pattern
+	 * @param PartsOfSpeech
+	 * @param maxResults
+	 * @param maxDistance
+	 */
+	public String[] GetSoundsLike(String pattern, String PartsOfSpeech, int maxResults, int maxDistance)
+	{
+		return GetStringVectorFromList(GetLemmaIndex(TransformPartsOfSpeech(PartsOfSpeech)).getSoundsLike(pattern, maxResults, maxDistance));
+	}
+
 	/**
 	 * Returns up to <code>maxResults</code> of the specified <code>PartsOfSpeech</code>
 	 * matching a wildcard <code>pattern</code>,<br>
@@ -368,9 +423,58 @@ public class WordNetCore implements IWordNetCore
 	 */
 	public String[] Filter(int filterFlag, String Unigram, POS PartsOfSpeech, int maxResults)
 	{
+		// anagram, sounds-like, prefix, suffix, containment and pattern queries go through
+		// the lemma index
+		if (filterFlag == ANAGRAMS)
+			return GetStringVectorFromList(GetLemmaIndex(PartsOfSpeech).getAnagrams(Unigram.toLowerCase(), maxResults));
+		if (filterFlag == SOUNDS_LIKE)
+			return GetStringVectorFromList(GetLemmaIndex(PartsOfSpeech).getSoundsLike(Unigram, maxResults));
+		if (filterFlag == STARTS_WITH)
+			return GetStringVectorFromList(GetLemmaIndex(PartsOfSpeech).getStartsWith(Unigram, maxResults));
+		if (filterFlag == ENDS_WITH)
+			return GetStringVectorFromList(GetLemmaIndex(PartsOfSpeech).getEndsWith(Unigram, maxResults));
+		if (filterFlag == CONTAINS)
+			return GetStringVectorFromList(GetLemmaIndex(PartsOfSpeech).getContaining(Unigram, maxResults));
+		if (filterFlag == WILDCARD_MATCH)
+			return GetStringVectorFromList(GetLemmaIndex(PartsOfSpeech).getWildcardMatch(Unigram, maxResults));
+		if (filterFlag == REGEX_MATCH)
+			return GetStringVectorFromList(GetLemmaIndex(PartsOfSpeech).getRegexMatch(Unigram, maxResults));
 		return GetStringVectorFromList(GetFilters().Filter(filterFlag, Unigram, PartsOfSpeech, maxResults));
 	}
 
+	/**
+	 * Returns the lemma index of <code>PartsOfSpeech</code>, building it from the
+	 * dictionary's index words the first time it is asked for. Only the build takes
+	 * a lock; queries on a built index read it without one.
+	 */
+	protected LemmaPatternIndex GetLemmaIndex(POS PartsOfSpeech)
+	{
+		int PosIndex = WordNetBinaryArray.getPosIndex(PartsOfSpeech.getKey().charAt(0));
+		LemmaPatternIndex Index = m_LemmaIndexes.get(PosIndex);
+		if (Index != null)
+			return Index;
+		synchronized (m_LemmaIndexes)
+		{
+			Index = m_LemmaIndexes.get(PosIndex);
+			if (Index != null)
+				return Index;
+
+			List Lemmas = new ArrayList();
+			try
+			{
+				for (Iterator i = m_Dictionary.getIndexWordIterator(PartsOfSpeech); i.hasNext();)
+					Lemmas.add(((IndexWord) i.next()).getLemma());
+			}
+			catch (JWNLException e)
+			{
+				throw new WordNetException(this, e);
+			}
+			Index = new LemmaPatternIndex(Lemmas);
+			m_LemmaIndexes.set(PosIndex, Index);
+			return Index;
+		}
+	}
+
 	public String[] Filter(int filterFlag, String Unigram, POS PartsOfSpeech)
 	{
 		return Filter(filterFlag, Unigram, PartsOfSpeech, Integer.MAX_VALUE);
@@ -445,6 +549,25 @@ public class WordNetCore implements IWordNetCore
 			System.out.println("[INFO] WordNet.home=" + m_WordNetHome);
 	}
 
+	/**
+	 * Attaches a compiled synset graph, whose precomputed tables then replace
+	 * hypernym tree walks wherever a synset is found in it.
+	 */
+	public void SetBinaryArray(WordNetBinaryArray BinaryArray)
+	{
+		try
+		{
+			m_DepthTable = SynsetDepthTable.load(BinaryArray);
+			m_AncestorIndex = new LowestCommonAncestorIndex(BinaryArray);
+			m_GlossStore = GlossStore.load(BinaryArray);
+			m_BinaryArray = BinaryArray;
+		}
+		catch (SemanticsException e)
+		{
+			throw new WordNetException(e);
+		}
+	}
+
 	// -------------------------- MAIN METHODS ----------------------------
 	private List GetSynsetList(int id)
 	{
@@ -459,27 +582,12 @@ public class WordNetCore implements IWordNetCore
 
 	private Synset GetSynsetAtId(int id)
 	{
-		POS PartsOfSpeech = null;
-		String idStr = Integer.toString(id);
-		int PartsOfSpeechDigit = Integer.parseInt(idStr.substring(0, 1));
-		long offset = Long.parseLong(idStr.substring(1));
-		switch (PartsOfSpeechDigit) {
-		case 9:
-			PartsOfSpeech = POS.NOUN;
-			break;
-		case 8:
-			PartsOfSpeech = POS.VERB;
-			break;
-		case 7:
-			PartsOfSpeech = POS.ADJECTIVE;
-			break;
-		case 6:
-			PartsOfSpeech = POS.ADVERB;
-			break;
-		}
+		if (!SenseIdCodec.isValid(id))
+			throw new WordNetException("Invalid sense id: " + id);
+		POS PartsOfSpeech = POS.getPOSForKey(Character.toString(SenseIdCodec.getPos(id)));
 		try
 		{
-			return m_Dictionary.getSynsetAt(PartsOfSpeech, offset);
+			return m_Dictionary.getSynsetAt(PartsOfSpeech, SenseIdCodec.getOffset(id));
 		}
 		catch (JWNLException e)
 		{
@@ -487,6 +595,33 @@ public class WordNetCore implements IWordNetCore
 		}
 	}
 
+	/**
+	 * Returns the ordinal of the synset with unique id <code>id</code> in the
+	 * compiled synset graph, or -1 if it is not there.
+	 */
+	private int ToOrdinal(int id)
+	{
+		if (!SenseIdCodec.isValid(id))
+			return -1;
+		return m_BinaryArray.getOrdinal(SenseIdCodec.getPos(id), SenseIdCodec.getOffset(id));
+	}
+
+	private int ToOrdinal(POS wnPartsOfSpeech, long offset)
+	{
+		return m_BinaryArray.getOrdinal(wnPartsOfSpeech.getKey().charAt(0), offset);
+	}
+
+	/**
+	 * Returns the synset at an ordinal of the compiled synset graph, or null for -1.
+	 */
+	private Synset GetSynsetAtOrdinal(int ordinal) throws JWNLException
+	{
+		if (ordinal < 0)
+			return null;
+		POS PartsOfSpeech = POS.getPOSForKey(Character.toString(m_BinaryArray.getPosKey(ordinal)));
+		return m_Dictionary.getSynsetAt(PartsOfSpeech, m_BinaryArray.getOffset(ordinal));
+	}
+
 	/**
 	 * Returns String[] of unique ids, one for each 'sense' of <code>Unigram</code>
 	 * with <code>PartsOfSpeech</code>, or null if none are found.
@@ -524,18 +659,10 @@ public class WordNetCore implements IWordNetCore
 
 	private int toId(POS wnPartsOfSpeech, long offset)
 	{
-		int PartsOfSpeechDigit = -1;
-		if (wnPartsOfSpeech == POS.NOUN)
-			PartsOfSpeechDigit = 9;
-		else if (wnPartsOfSpeech == POS.VERB)
-			PartsOfSpeechDigit = 8;
-		else if (wnPartsOfSpeech == POS.ADJECTIVE)
-			PartsOfSpeechDigit = 7;
-		else if (wnPartsOfSpeech == POS.ADVERB)
-			PartsOfSpeechDigit = 6;
-		else
-			throw new WordNetException("Invalid POS type: " + wnPartsOfSpeech);
-		return Integer.parseInt((Integer.toString(PartsOfSpeechDigit) + offset));
+		long id = SenseIdCodec.encode(wnPartsOfSpeech.getKey().charAt(0), offset);
+		if (id == SenseIdCodec.NO_ID)
+			throw new WordNetException("Invalid POS type or offset: " + wnPartsOfSpeech + ", " + offset);
+		return (int) id;
 	}
 
 	/**
@@ -570,6 +697,11 @@ public class WordNetCore implements IWordNetCore
 	 */
 	public String GetGloss(int SenseId)
 	{
+		if (m_GlossStore != null)
+		{
+			CharSequence gloss = GetGlossSequence(SenseId);
+			return gloss == null ? null : gloss.toString();
+		}
 		Synset SynsetInstance = GetSynsetAtId(SenseId);
 		if (SynsetInstance == null)
 			return null;
@@ -590,9 +722,62 @@ public class WordNetCore implements IWordNetCore
 	{
 		if (SynsetInstance == null)
 			return null;
+		int ordinal = ToStoredOrdinal(SynsetInstance);
+		if (ordinal >= 0)
+		{
+			CharSequence gloss = m_GlossStore.getGloss(ordinal);
+			return gloss == null ? null : gloss.toString();
+		}
 		return SynsetInstance.getGloss();
 	}
 
+	/**
+	 * Returns the gloss of the synset with unique id <code>SenseId</code> as a view
+	 * over the compiled synset graph, which copies nothing, or null if not found.
+	 * Without a compiled graph the gloss comes from the dictionary.
+	 */
+	public CharSequence GetGlossSequence(int SenseId)
+	{
+		if (m_GlossStore != null)
+		{
+			int ordinal = ToOrdinal(SenseId);
+			if (ordinal >= 0)
+				return m_GlossStore.getGloss(ordinal);
+		}
+		Synset SynsetInstance = GetSynsetAtId(SenseId);
+		return SynsetInstance == null ? null : SynsetInstance.getGloss();
+	}
+
+	/**
+	 * Returns the usage examples of the synset with unique id <code>SenseId</code> as
+	 * views over the compiled synset graph, or null if none are found. Without a compiled
+	 * graph the examples are parsed from the gloss.
+	 */
+	public CharSequence[] GetExampleSequences(int SenseId)
+	{
+		if (m_GlossStore != null)
+		{
+			int ordinal = ToOrdinal(SenseId);
+			if (ordinal >= 0)
+			{
+				CharSequence[] examples = m_GlossStore.getExamples(ordinal);
+				return examples.length == 0 ? null : examples;
+			}
+		}
+		return GetExamples(SenseId);
+	}
+
+	/**
+	 * Returns the ordinal of a synset in the compiled synset graph if its glosses are
+	 * stored there, else -1.
+	 */
+	private int ToStoredOrdinal(Synset SynsetInstance)
+	{
+		if (m_GlossStore == null)
+			return -1;
+		return ToOrdinal(SynsetInstance.getPOS(), SynsetInstance.getOffset());
+	}
+
 	/**
 	 * Returns description for <code>Unigram</code> with <code>PartsOfSpeech</code> or null if
 	 * not found
@@ -632,6 +817,20 @@ public class WordNetCore implements IWordNetCore
 	 */
 	public String[] GetExamples(int SenseId)
 	{
+		if (m_GlossStore != null)
+		{
+			int ordinal = ToOrdinal(SenseId);
+			if (ordinal >= 0)
+			{
+				CharSequence[] examples = m_GlossStore.getExamples(ordinal);
+				if (examples.length == 0)
+					return null;
+				String[] result = new String[examples.length];
+				for (int i = 0; i < examples.length; i++)
+					result[i] = examples[i].toString();
+				return result;
+			}
+		}
 		Synset SynsetInstance = GetSynsetAtId(SenseId);
 		if (SynsetInstance == null)
 			return null;
@@ -675,6 +874,17 @@ public class WordNetCore implements IWordNetCore
 
 	private List GetExamples(Synset SynsetInstance)
 	{
+		int ordinal = SynsetInstance == null ? -1 : ToStoredOrdinal(SynsetInstance);
+		if (ordinal >= 0)
+		{
+			int count = m_GlossStore.getExampleCount(ordinal);
+			if (count == 0)
+				return null;
+			List l = new ArrayList(count);
+			for (int i = 0; i < count; i++)
+				l.add(m_GlossStore.getExample(ordinal, i).toString());
+			return l;
+		}
 		String gloss = GetGloss(SynsetInstance);
 		return WordNetUtil.parseExamples(gloss);
 	}
@@ -873,6 +1083,14 @@ public class WordNetCore implements IWordNetCore
 	 */
 	public Synset GetCommonAncestor(int id1, int id2) throws JWNLException
 	{
+		if (m_AncestorIndex != null)
+		{
+			int ordinal1 = ToOrdinal(id1);
+			int ordinal2 = ToOrdinal(id2);
+			if (ordinal1 >= 0 && ordinal2 >= 0)
+				return GetSynsetAtOrdinal(m_AncestorIndex.getCommonAncestor(ordinal1, ordinal2));
+		}
+
 		Synset SynsetInstance1 = GetSynsetAtId(id1);
 		if (SynsetInstance1 == null)
 			return null;
@@ -916,6 +1134,14 @@ public class WordNetCore implements IWordNetCore
 		if (XWord1 == null || XWord2 == null)
 			return null;
 
+		if (m_AncestorIndex != null)
+		{
+			int ordinal1 = ToOrdinal(XWord1.getPOS(), XWord1.getSynsetOffsets()[0]);
+			int ordinal2 = ToOrdinal(XWord2.getPOS(), XWord2.getSynsetOffsets()[0]);
+			if (ordinal1 >= 0 && ordinal2 >= 0)
+				return GetSynsetAtOrdinal(m_AncestorIndex.getCommonAncestor(ordinal1, ordinal2));
+		}
+
 		RelationshipList list = null;
 		try
 		{
@@ -1320,59 +1546,21 @@ public class WordNetCore implements IWordNetCore
 		GetLemmaSet(NodeList, HyponymList);
 	}
 
-	/**
-	 * Returns an unordered String[] of hyponym-synsets (each a colon-delimited String), or null if not found
-	 */
-	public String[] GetAllHyponyms(String Unigram, String PartsOfSpeech)
-	{
-		IndexWord XWord = FindIndexWord(TransformPartsOfSpeech(PartsOfSpeech), Unigram);
-		List HyponymList = this.GetAllHyponyms(XWord);
-		if (HyponymList == null)
-			return null;
-		HyponymList.remove(Unigram);
-		return GetStringVectorFromList(HyponymList);
-	}
-
-	private List GetAllHyponyms(IndexWord XWord)
-	{
-		if (XWord == null)
-			return null;
-
-		Synset[] SynsetInstances = null;
-		try
-		{
-			SynsetInstances = XWord.getSenses();
-		}
-		catch (JWNLException e)
-		{
-			throw new WordNetException(e);
-		}
-		if (SynsetInstances == null || SynsetInstances.length <= 0)
-			return null;
-
-		List l = new LinkedList();
-		for (int i = 0; i < SynsetInstances.length; i++)
-		{
-			try
-			{
-				GetHyponyms(SynsetInstances[i], l);
-			}
-			catch (JWNLException e)
-			{
-				e.printStackTrace();
-			}
-		}
-
-		return l == null || l.size() < 1 ? null : l;
-	}
-
 	/**
 	 * Returns an unordered String[] of hyponym-synsets (each a colon-delimited
 	 * String) representing all paths to leaves in the ontology (the full hyponym
-	 * tree), or null if not found
+	 * tree), or null if not found. With a compiled synset graph the hyponyms are
+	 * walked once each by ordinal instead of expanding every path of the tree.
 	 */
 	public String[] GetHyponymTree(int id)
 	{
+		if (m_BinaryArray != null)
+		{
+			int ordinal = ToOrdinal(id);
+			if (ordinal >= 0)
+				return GetStringVectorFromList(GetGraphHyponymTree(ordinal));
+		}
+
 		Synset SynsetInstance = GetSynsetAtId(id);
 		if (SynsetInstance == null)
 			return null;
@@ -1406,45 +1594,147 @@ public class WordNetCore implements IWordNetCore
 		if (HyponymTree == null)
 			return null;
 
-		List pointerTargetNodeLists = HyponymTree.toList();
-
+		Set SeedLemmas = new HashSet();
+		AddLemmas(SynsetInstance.getWords(), SeedLemmas);
 		List LemmaList = new ArrayList();
-		for (Iterator i = pointerTargetNodeLists.iterator(); i.hasNext();)
+		Set Seen = new HashSet();
+		Set Entries = new HashSet();
+		for (Iterator i = HyponymTree.toList().iterator(); i.hasNext();)
 		{
 			PointerTargetNodeList NodeList = (PointerTargetNodeList) i.next();
-			List TmpLemmaList = this.GetLemmaStrings(NodeList, SYNSET_DELIM, true);
-
-			for (Iterator it = TmpLemmaList.iterator(); it.hasNext();)
+			for (Iterator j = NodeList.iterator(); j.hasNext();)
 			{
-				String LemmaStr = (String) it.next();
-				LemmaStr = PruneterminalCharacters(LemmaStr);
-				if (LemmaStr.length() < 2)
+				Synset Hyponym = ((PointerTargetNode) j.next()).getSynset();
+				if (Hyponym == null || !Seen.add(Hyponym))
 					continue;
-				if (!LemmaList.contains(LemmaStr))
-					LemmaList.add(LemmaStr);
+				List SynsetLemmas = new ArrayList();
+				AddLemmas(Hyponym.getWords(), SynsetLemmas);
+				AddTreeEntry(SynsetLemmas, SeedLemmas, Entries, LemmaList);
 			}
 		}
+		return LemmaList;
+	}
 
-		// remove all the entries from the current SynsetInstance
-		Set SynsetInstances = new HashSet();
-		AddLemmas(SynsetInstance.getWords(), SynsetInstances);
-		OUTER: for (Iterator iter = LemmaList.iterator(); iter.hasNext();)
+	/*
+	 * Walks the hyponyms of a synset of the compiled synset graph lazily, each once,
+	 * reading the lemmas of each synset as it is reached.
+	 */
+	private List GetGraphHyponymTree(int ordinal)
+	{
+		SynsetClosureIterator Closure = SynsetClosureIterator.hyponyms(m_BinaryArray, ordinal, Integer.MAX_VALUE, Integer.MAX_VALUE);
+		Set SeedLemmas = new HashSet();
+		String[] lemmas = Closure.getLemmas(ordinal);
+		for (int i = 0; i < lemmas.length; i++)
+			AddLemma(lemmas[i], SeedLemmas);
+		List LemmaList = new ArrayList();
+		Set Entries = new HashSet();
+		while (Closure.hasNext())
 		{
-			String SynsetInstance = (SYNSET_DELIM + (String) iter.next() + SYNSET_DELIM);
-			for (Iterator j = SynsetInstances.iterator(); j.hasNext();)
-			{
-				String lemma = (SYNSET_DELIM + j.next() + SYNSET_DELIM);
-				if (SynsetInstance.indexOf(lemma) > -1)
-				{
-					iter.remove();
-					continue OUTER;
-				}
-			}
+			Closure.nextOrdinal();
+			lemmas = Closure.getLemmas();
+			List SynsetLemmas = new ArrayList();
+			for (int i = 0; i < lemmas.length; i++)
+				AddLemma(lemmas[i], SynsetLemmas);
+			AddTreeEntry(SynsetLemmas, SeedLemmas, Entries, LemmaList);
 		}
-
 		return LemmaList;
 	}
 
+	/*
+	 * Adds the colon-delimited lemmas of a hyponym to a hyponym tree, unless it is
+	 * empty, already there or shares a lemma with the seed synset.
+	 */
+	private static void AddTreeEntry(List SynsetLemmas, Set SeedLemmas, Set Entries, List LemmaList)
+	{
+		for (Iterator i = SynsetLemmas.iterator(); i.hasNext();)
+		{
+			if (SeedLemmas.contains(i.next()))
+				return;
+		}
+		String LemmaStr = WordNetUtil.join(SynsetLemmas, SYNSET_DELIM);
+		if (LemmaStr.length() >= 2 && Entries.add(LemmaStr))
+			LemmaList.add(LemmaStr);
+	}
+
+	/**
+	 * Returns a lazy walk over the hyponyms of the synset with unique id
+	 * <code>SenseId</code>, nearest first, following at most <code>maxDepth</code>
+	 * links and returning at most <code>maxResults</code> synsets, or null if the
+	 * synset is not found. Requires a compiled synset graph.
+	 */
+	public SynsetClosureIterator GetHyponymIterator(int SenseId, int maxDepth, int maxResults)
+	{
+		int ordinal = ToGraphOrdinal(SenseId);
+		if (ordinal < 0)
+			return null;
+		return SynsetClosureIterator.hyponyms(m_BinaryArray, ordinal, maxDepth, maxResults);
+	}
+
+	/**
+	 * Returns a lazy walk over the hypernyms of the synset with unique id
+	 * <code>SenseId</code>, nearest first, following at most <code>maxDepth</code>
+	 * links and returning at most <code>maxResults</code> synsets, or null if the
+	 * synset is not found. Requires a compiled synset graph.
+	 */
+	public SynsetClosureIterator GetHypernymIterator(int SenseId, int maxDepth, int maxResults)
+	{
+		int ordinal = ToGraphOrdinal(SenseId);
+		if (ordinal < 0)
+			return null;
+		return SynsetClosureIterator.hypernyms(m_BinaryArray, ordinal, maxDepth, maxResults);
+	}
+
+	/**
+	 * Returns the unique lemmas of the hyponyms of the synset with unique id
+	 * <code>SenseId</code> up to <code>maxDepth</code> links down, nearest first and
+	 * from at most <code>maxResults</code> synsets, or null if none are found.
+	 * Lemmas of the synset itself are left out.
+	 */
+	public String[] GetHyponymClosure(int SenseId, int maxDepth, int maxResults)
+	{
+		return GetClosureLemmas(GetHyponymIterator(SenseId, maxDepth, maxResults));
+	}
+
+	/**
+	 * Returns the unique lemmas of the hypernyms of the synset with unique id
+	 * <code>SenseId</code> up to <code>maxDepth</code> links up, nearest first and
+	 * from at most <code>maxResults</code> synsets, or null if none are found.
+	 * Lemmas of the synset itself are left out.
+	 */
+	public String[] GetHypernymClosure(int SenseId, int maxDepth, int maxResults)
+	{
+		return GetClosureLemmas(GetHypernymIterator(SenseId, maxDepth, maxResults));
+	}
+
+	private String[] GetClosureLemmas(SynsetClosureIterator Closure)
+	{
+		if (Closure == null)
+			return null;
+		Set LemmaSet = new LinkedHashSet();
+		while (Closure.hasNext())
+		{
+			Closure.nextOrdinal();
+			String[] lemmas = Closure.getLemmas();
+			for (int i = 0; i < lemmas.length; i++)
+				AddLemma(lemmas[i], LemmaSet);
+		}
+		String[] SeedLemmas = Closure.getLemmas(Closure.getSeed());
+		for (int i = 0; i < SeedLemmas.length; i++)
+			LemmaSet.remove(NormalizeLemma(SeedLemmas[i]));
+		return GetStringVectorFromList(new ArrayList(LemmaSet));
+	}
+
+	/**
+	 * Returns the ordinal of the synset with unique id <code>SenseId</code> in the
+	 * compiled synset graph, or -1 if it is not there.
+	 */
+	private int ToGraphOrdinal(int SenseId)
+	{
+		if (m_BinaryArray == null)
+			throw new WordNetException("Synset graph queries need a compiled synset graph, see SetBinaryArray()");
+		return ToOrdinal(SenseId);
+	}
+
 
 	public boolean isNoun(String Unigram)
 	{
@@ -1474,8 +1764,55 @@ public class WordNetCore implements IWordNetCore
 	 */
 	public String[] GetStems(String Expression, CharSequence PartsOfSpeech)
 	{
-		List tmp = GetStemList(Expression, PartsOfSpeech);
-		return GetStringVectorFromList(tmp);
+		String[] stems = GetCachedStems(Expression, TransformPartsOfSpeech(PartsOfSpeech));
+		return stems.length == 0 ? null : stems.clone();
+	}
+
+	/**
+	 * Returns the stems of each of <code>Tokens</code>, null where none are found.
+	 * The tokens are sorted and deduplicated first, so every distinct token is
+	 * looked up once.
+	 * 
+	 * @param Tokens
+	 * @param PartsOfSpeech
+	 */
+	public String[][] GetStems(String[] Tokens, CharSequence PartsOfSpeech)
+	{
+		POS wnPartsOfSpeech = TransformPartsOfSpeech(PartsOfSpeech);
+		String[] Distinct = Tokens.clone();
+		Arrays.sort(Distinct);
+		int DistinctCount = 0;
+		for (int i = 0; i < Distinct.length; i++)
+		{
+			if (DistinctCount == 0 || !Distinct[i].equals(Distinct[DistinctCount - 1]))
+				Distinct[DistinctCount++] = Distinct[i];
+		}
+
+		String[][] DistinctStems = new String[DistinctCount][];
+		for (int i = 0; i < DistinctCount; i++)
+			DistinctStems[i] = GetCachedStems(Distinct[i], wnPartsOfSpeech);
+
+		String[][] result = new String[Tokens.length][];
+		for (int i = 0; i < Tokens.length; i++)
+		{
+			String[] stems = DistinctStems[Arrays.binarySearch(Distinct, 0, DistinctCount, Tokens[i])];
+			result[i] = stems.length == 0 ? null : stems.clone();
+		}
+		return result;
+	}
+
+	/**
+	 * Sets the maximum number of (PartsOfSpeech, token) pairs whose stems are cached,
+	 * dropping those cached so far.
+	 */
+	public void SetStemCacheSize(int CacheSize)
+	{
+		m_StemCache = new BoundedCache<String, String[]>(CacheSize);
+	}
+
+	public BoundedCache<String, String[]> GetStemCache()
+	{
+		return m_StemCache;
 	}
 
 	/**
@@ -1487,20 +1824,35 @@ public class WordNetCore implements IWordNetCore
 	 */
 	public boolean isStem(String Unigram, CharSequence PartsOfSpeech)
 	{
-		String[] stems = GetStems(Unigram, PartsOfSpeech);
-		if (stems == null)
-			return false;
+		String[] stems = GetCachedStems(Unigram, TransformPartsOfSpeech(PartsOfSpeech));
 		for (int i = 0; i < stems.length; i++)
 			if (Unigram.equals(stems[i]))
 				return true;
 		return false;
 	}
 
-	private List GetStemList(String Expression, CharSequence PartsOfSpeech)
+	/**
+	 * Returns the stems of a token from the cache, looking them up on a miss.
+	 * The array returned is shared and must not be modified.
+	 */
+	private String[] GetCachedStems(String Expression, POS wnPartsOfSpeech)
+	{
+		String Key = wnPartsOfSpeech.getKey() + '#' + Expression;
+		String[] stems = m_StemCache.get(Key);
+		if (stems == null)
+		{
+			String[] found = GetStringVectorFromList(GetStemList(Expression, wnPartsOfSpeech));
+			stems = found == null ? NO_STEMS : found;
+			m_StemCache.put(Key, stems);
+		}
+		return stems;
+	}
+
+	private List GetStemList(String Expression, POS wnPartsOfSpeech)
 	{
 		try
 		{
-			return m_Dictionary.getMorphologicalProcessor().lookupAllBaseForms(TransformPartsOfSpeech(PartsOfSpeech), Expression);
+			return m_Dictionary.getMorphologicalProcessor().lookupAllBaseForms(wnPartsOfSpeech, Expression);
 		}
 		catch (JWNLException e)
 		{
@@ -1863,36 +2215,32 @@ public class WordNetCore implements IWordNetCore
 	 */
 	public String[] GetRandomExamples(CharSequence PartsOfSpeech, int numExamples)
 	{
-		int idx = 0;
+		return GetRandomExamples(PartsOfSpeech, numExamples, m_Random);
+	}
+
+	/**
+	 * Returns <code>numExamples</code> random examples from random words w'
+	 * <code>PartsOfSpeech</code>, drawn from a generator seeded with <code>seed</code>
+	 * so that runs over the same dictionary can be reproduced.
+	 * 
+	 * @return random examples
+	 */
+	public String[] GetRandomExamples(CharSequence PartsOfSpeech, int numExamples, long seed)
+	{
+		return GetRandomExamples(PartsOfSpeech, numExamples, new Random(seed));
+	}
+
+	private String[] GetRandomExamples(CharSequence PartsOfSpeech, int numExamples, Random Generator)
+	{
+		POS wnPartsOfSpeech = TransformPartsOfSpeech(PartsOfSpeech);
+		LemmaSampler Sampler = GetSampler(wnPartsOfSpeech, SAMPLE_EXAMPLES);
 		String[] result = new String[numExamples];
-		WHILE: while (true)
+		for (int i = 0; i < result.length; i++)
 		{
-			try
-			{
-				IndexWord XWord = null;
-				while (XWord == null || !m_DiscardCompoundWord && WordNetUtil.contains(XWord.getLemma(), " "))
-					XWord = m_Dictionary.getRandomIndexWord(TransformPartsOfSpeech(PartsOfSpeech));
-
-				Synset SynsetInstance = XWord.getSenses()[0];
-				List l = GetExamples(SynsetInstance);
-				if (l == null || l.size() < 1)
-					continue;
-				for (Iterator i = l.iterator(); i.hasNext();)
-				{
-					String example = (String) i.next();
-					if (example != null)
-					{
-						result[idx++] = example;
-						break;
-					}
-				}
-				if (idx == result.length)
-					break WHILE;
-			}
-			catch (JWNLException e)
-			{
-				System.err.println("WARN] Unexpected Exception: " + e.getMessage());
-			}
+			String Lemma = Sampler.draw(Generator, Integer.MAX_VALUE);
+			if (Lemma == null)
+				break;
+			result[i] = GetFirstExample(Lemma, wnPartsOfSpeech);
 		}
 		return result;
 	}
@@ -1904,9 +2252,27 @@ public class WordNetCore implements IWordNetCore
 	 */
 	public String[] GetRandomWords(CharSequence PartsOfSpeech, int count)
 	{
+		return GetRandomWords(PartsOfSpeech, count, true, m_WordSizeMax, m_Random);
+	}
+
+	/**
+	 * Returns <code>count</code> random words with <code>PartsOfSpeech</code> and a
+	 * maximum of <code>maxChars</code>, drawn from a generator seeded with
+	 * <code>seed</code> so that runs over the same dictionary can be reproduced.
+	 * 
+	 * @return String[] of random words, null where none is found
+	 */
+	public String[] GetRandomWords(CharSequence PartsOfSpeech, int count, boolean stemsOnly, int maxChars, long seed)
+	{
+		return GetRandomWords(PartsOfSpeech, count, stemsOnly, maxChars, new Random(seed));
+	}
+
+	private String[] GetRandomWords(CharSequence PartsOfSpeech, int count, boolean stemsOnly, int maxChars, Random Generator)
+	{
+		LemmaSampler Sampler = GetSampler(TransformPartsOfSpeech(PartsOfSpeech), stemsOnly ? SAMPLE_STEMS : SAMPLE_WORDS);
 		String[] result = new String[count];
 		for (int i = 0; i < result.length; i++)
-			result[i] = GetRandomWord(PartsOfSpeech, true, m_WordSizeMax);
+			result[i] = Sampler.draw(Generator, maxChars);
 		return result;
 	}
 
@@ -1929,31 +2295,59 @@ public class WordNetCore implements IWordNetCore
 	 */
 	public String GetRandomWord(CharSequence PartsOfSpeech, boolean stemsOnly, int maxChars)
 	{
-		IndexWord XWord = null;
-		POS wnPartsOfSpeech = TransformPartsOfSpeech(PartsOfSpeech);
-		while (true)
+		LemmaSampler Sampler = GetSampler(TransformPartsOfSpeech(PartsOfSpeech), stemsOnly ? SAMPLE_STEMS : SAMPLE_WORDS);
+		return Sampler.draw(m_Random, maxChars);
+	}
+
+	/**
+	 * Returns the sampling table of the lemmas with <code>PartsOfSpeech</code> that
+	 * pass <code>Filter</code> (one of the SAMPLE_ constants) and, if compound words
+	 * are discarded, are not compound. The table is built by checking every lemma the
+	 * first time it is asked for, after which each draw takes constant time. Tables are
+	 * built without a lock, so a scan never blocks other tables; if two threads build
+	 * the same table, the first one published is kept.
+	 */
+	protected LemmaSampler GetSampler(POS PartsOfSpeech, int Filter)
+	{
+		String Key = PartsOfSpeech.getKey() + Filter + (m_DiscardCompoundWord ? "-" : "+");
+		LemmaSampler Sampler = (LemmaSampler) m_Samplers.get(Key);
+		if (Sampler != null)
+			return Sampler;
+
+		LemmaPatternIndex Index = GetLemmaIndex(PartsOfSpeech);
+		WordNetBinaryCompiler.IntList Eligible = new WordNetBinaryCompiler.IntList();
+		for (int id = 0; id < Index.size(); id++)
 		{
-			try
-			{
-				FileBackedDictionary d;
-				XWord = m_Dictionary.getRandomIndexWord(wnPartsOfSpeech);
-			}
-			catch (JWNLRuntimeException e)
-			{
+			String Lemma = Index.getLemma(id);
+			if (m_DiscardCompoundWord && isCompound(Lemma))
 				continue;
-			}
-			catch (JWNLException e)
-			{
-				throw new WordNetException(e);
-			}
-			String word = XWord.getLemma();
-			if (m_DiscardCompoundWord && isCompound(Word))
+			if (Filter == SAMPLE_STEMS && !isStem(Lemma, PartsOfSpeech.getKey()))
 				continue;
-			if (Word.length() > maxChars)
+			if (Filter == SAMPLE_EXAMPLES && GetFirstExample(Lemma, PartsOfSpeech) == null)
 				continue;
-			if (!stemsOnly || isStem(Word, PartsOfSpeech))
-				return XWord.getLemma();
+			Eligible.add(id);
 		}
+		Sampler = new LemmaSampler(Index, Eligible.toArray());
+		LemmaSampler Published = (LemmaSampler) m_Samplers.putIfAbsent(Key, Sampler);
+		return Published != null ? Published : Sampler;
+	}
+
+	/* Returns the first example of the first sense of a lemma, or null. */
+	private String GetFirstExample(String Lemma, POS PartsOfSpeech)
+	{
+		Synset SynsetInstance = GetSynsetAtIndex(Lemma, PartsOfSpeech.getKey(), 1);
+		if (SynsetInstance == null)
+			return null;
+		List l = GetExamples(SynsetInstance);
+		if (l == null)
+			return null;
+		for (Iterator i = l.iterator(); i.hasNext();)
+		{
+			String example = (String) i.next();
+			if (example != null)
+				return example;
+		}
+		return null;
 	}
 
 	/**
@@ -2139,13 +2533,19 @@ public class WordNetCore implements IWordNetCore
 	{
 		RelationshipList Relations;
 		AsymmetricRelationship Relation;
-		int AncestorIndex, RelationLength, NodeLevel, RootDepth, LeafDepth;
+		int AncestorIndex, RelationLength, RootDepth, LeafDepth;
 		float MinimumDistance, CurrDistance;
 		PointerTargetNode CommonAncestor;
 		Synset SynsetInstance;
-		List AncestralHypernymList;
 		MinimumDistance = 1.0f;
 
+		if (m_AncestorIndex != null)
+		{
+			float IndexedDistance = GetWordDistance(XWord1.getPOS(), XWord1.getSynsetOffsets(), XWord2.getSynsetOffsets());
+			if (IndexedDistance >= 0)
+				return IndexedDistance;
+		}
+
 		int senseCount1 = XWord1.getSenseCount();
 		int senseCount2 = XWord2.getSenseCount();
 
@@ -2177,27 +2577,9 @@ public class WordNetCore implements IWordNetCore
 
 					CommonAncestor = (PointerTargetNode) Relation.getNodeList().get(AncestorIndex);
 					SynsetInstance = CommonAncestor.getSynset();
-					
-					// get all the hypernyms of the CPI synset
-					AncestralHypernymList = (PointerUtils.getInstance().getHypernymTree(SynsetInstance)).toList();
 
 					// get shortest NodeLevel from root to common ancestor
-					RootDepth = -1;
-					for (Iterator AncestralHypernymListIter = AncestralHypernymList.iterator(); AncestralHypernymListIter.hasNext();)
-					{
-						NodeLevel = ((List) AncestralHypernymListIter.next()).size();
-						if (RootDepth == -1)
-						{
-							RootDepth = NodeLevel;
-						}
-						else
-						{
-							if (NodeLevel < RootDepth)
-							{
-								RootDepth = NodeLevel;
-							}
-						}
-					}
+					RootDepth = GetRootDepth(SynsetInstance);
 
 					// normalize the MinimumDistance
 					CurrDistance = (float) LeafDepth / (RootDepth + LeafDepth);
@@ -2211,6 +2593,108 @@ public class WordNetCore implements IWordNetCore
 		return MinimumDistance;
 	}
 
+	/**
+	 * Returns the min distance between any two senses given by their offsets, through
+	 * the common ancestor index, or -1 if a sense is not in the compiled graph.
+	 */
+	private float GetWordDistance(POS PartsOfSpeech, long[] Offsets1, long[] Offsets2)
+	{
+		int[] ordinals1 = new int[Offsets1.length];
+		int[] ordinals2 = new int[Offsets2.length];
+		for (int i = 0; i < Offsets1.length; i++)
+		{
+			if ((ordinals1[i] = ToOrdinal(PartsOfSpeech, Offsets1[i])) < 0)
+				return -1;
+		}
+		for (int j = 0; j < Offsets2.length; j++)
+		{
+			if ((ordinals2[j] = ToOrdinal(PartsOfSpeech, Offsets2[j])) < 0)
+				return -1;
+		}
+
+		float MinimumDistance = 1.0f;
+		int[] result = new int[3];
+		for (int i = 0; i < ordinals1.length; i++)
+		{
+			for (int j = 0; j < ordinals2.length; j++)
+			{
+				float CurrDistance = GetSenseDistance(ordinals1[i], ordinals2[j], result);
+				if (CurrDistance < MinimumDistance)
+					MinimumDistance = CurrDistance;
+			}
+		}
+		return MinimumDistance;
+	}
+
+	/**
+	 * Returns the distance between two senses through their lowest common ancestor,
+	 * normalized like GetWordDistance, or 1.0 if they share no ancestor.
+	 */
+	private float GetSenseDistance(int ordinal1, int ordinal2, int[] result)
+	{
+		int Ancestor = m_AncestorIndex.query(ordinal1, ordinal2, result);
+		if (Ancestor < 0)
+			return 1.0f;
+
+		// NodeLevel of furthest sense from common ancestor
+		int LeafDepth = Math.max(result[LowestCommonAncestorIndex.FIRST_DEPTH], result[LowestCommonAncestorIndex.SECOND_DEPTH]);
+		int RootDepth = m_DepthTable.getDepth(Ancestor) + 1;
+		return (float) LeafDepth / (RootDepth + LeafDepth);
+	}
+
+	/**
+	 * Returns the distances between pairs of senses given by their unique ids, through
+	 * their lowest common ancestors. Pairs whose senses are not found, or share no
+	 * ancestor, are at distance 1.0. Requires a compiled synset graph, see SetBinaryArray.
+	 *
+	 * @param SenseIds1 ids of the first senses
+	 * @param SenseIds2 ids of the second senses, as many as the first ones
+	 */
+	public float[] GetDistances(int[] SenseIds1, int[] SenseIds2)
+	{
+		if (m_AncestorIndex == null)
+			throw new WordNetException("No compiled synset graph attached");
+
+		float[] Distances = new float[SenseIds1.length];
+		int[] result = new int[3];
+		for (int i = 0; i < SenseIds1.length; i++)
+		{
+			int ordinal1 = ToOrdinal(SenseIds1[i]);
+			int ordinal2 = ToOrdinal(SenseIds2[i]);
+			Distances[i] = (ordinal1 < 0 || ordinal2 < 0) ? 1.0f : GetSenseDistance(ordinal1, ordinal2, result);
+		}
+		return Distances;
+	}
+
+	/**
+	 * Returns the number of synsets on the shortest hypernym chain from a synset up to
+	 * its root, the synset included. The depth table answers when a compiled graph is
+	 * attached; otherwise the hypernym tree is built.
+	 */
+	private int GetRootDepth(Synset SynsetInstance) throws JWNLException
+	{
+		if (m_DepthTable != null)
+		{
+			int ordinal = m_BinaryArray.getOrdinal(SynsetInstance.getPOS().getKey().charAt(0), SynsetInstance.getOffset());
+			if (ordinal >= 0)
+				return m_DepthTable.getDepth(ordinal) + 1;
+		}
+
+		// get all the hypernyms of the synset
+		List AncestralHypernymList = (PointerUtils.getInstance().getHypernymTree(SynsetInstance)).toList();
+
+		int RootDepth = -1;
+		for (Iterator AncestralHypernymListIter = AncestralHypernymList.iterator(); AncestralHypernymListIter.hasNext();)
+		{
+			int NodeLevel = ((List) AncestralHypernymListIter.next()).size();
+			if (RootDepth == -1 || NodeLevel < RootDepth)
+			{
+				RootDepth = NodeLevel;
+			}
+		}
+		return RootDepth;
+	}
+
 	/**
 	 * Returns array of whole-to-part relationships for 1st sense of word/PartsOfSpeech, or null if not found
 	 * 
@@ -2247,6 +2731,9 @@ public class WordNetCore implements IWordNetCore
 	 */
 	public String[] GetMeronyms(int id)
 	{
+		int[] Targets = GetTargetOrdinals(id, MERONYM_TYPES);
+		if (Targets != null)
+			return GetLemmasAtOrdinals(Targets);
 		try
 		{
 			Synset SynsetInstance = GetSynsetAtId(id);
@@ -2345,6 +2832,9 @@ public class WordNetCore implements IWordNetCore
 	 */
 	public String[] GetHolonyms(int id)
 	{
+		int[] Targets = GetTargetOrdinals(id, HOLONYM_TYPES);
+		if (Targets != null)
+			return GetLemmasAtOrdinals(Targets);
 		PointerTargetNodeList NodeList = null;
 		try
 		{
@@ -2436,6 +2926,9 @@ public class WordNetCore implements IWordNetCore
 	 */
 	public String[] GetCoordinates(int id)
 	{
+		int ordinal = m_BinaryArray == null ? -1 : ToOrdinal(id);
+		if (ordinal >= 0)
+			return GetLemmasAtOrdinals(GetCoordinateOrdinals(ordinal));
 		String[] result = null;
 		try
 		{
@@ -2711,6 +3204,9 @@ public class WordNetCore implements IWordNetCore
 	 */
 	public String[] GetIdenticalSenses(int id)
 	{
+		int[] Targets = GetTargetOrdinals(id, new byte[] { WordNetBinaryArray.SIMILAR_TO });
+		if (Targets != null)
+			return GetLemmasAtOrdinals(Targets);
 		return GetPointerTargetsAtId(id, PointerType.SIMILAR_TO);
 	}
 
@@ -2780,7 +3276,7 @@ public class WordNetCore implements IWordNetCore
 		Synset[] SynsetInstance = GetAllSynsets(Unigram, PartsOfSpeech);
 		if (SynsetInstance == null || SynsetInstance.length < 1)
 			return null;
-		List result = new LinkedList();
+		Set result = new LinkedHashSet();
 		for (int i = 0; i < SynsetInstance.length; i++)
 		{
 			try
@@ -2801,7 +3297,7 @@ public class WordNetCore implements IWordNetCore
 			}
 		}
 		result.remove(Unigram);
-		return GetStringVectorFromList(result);
+		return GetStringVectorFromList(new ArrayList(result));
 	}
 
 	/*
@@ -2840,4 +3336,181 @@ public class WordNetCore implements IWordNetCore
 			throw new WordNetException(e);
 		}
 	}
+
+	// -------------------- POINTER TARGET IDS ----------------------------
+
+	/**
+	 * Returns the unique ids of the synsets the synset with unique id <code>SenseId</code>
+	 * points to with pointers of type <code>Type</code>, one of the pointer types of
+	 * {@link WordNetBinaryArray}, or null if the synset is not found. Lexical pointers,
+	 * such as antonyms, are followed from synset to synset. Requires a compiled synset
+	 * graph.
+	 */
+	public int[] GetPointerTargetIds(int SenseId, byte Type)
+	{
+		return GetPointerTargetIds(SenseId, new byte[] { Type });
+	}
+
+	/**
+	 * Returns the unique ids of the part, member and substance meronyms of the synset
+	 * with unique id <code>SenseId</code>, or null if the synset is not found.
+	 */
+	public int[] GetMeronymIds(int SenseId)
+	{
+		return GetPointerTargetIds(SenseId, MERONYM_TYPES);
+	}
+
+	/**
+	 * Returns the unique ids of the part, member and substance holonyms of the synset
+	 * with unique id <code>SenseId</code>, or null if the synset is not found.
+	 */
+	public int[] GetHolonymIds(int SenseId)
+	{
+		return GetPointerTargetIds(SenseId, HOLONYM_TYPES);
+	}
+
+	/**
+	 * Returns the unique ids of the hyponyms of the direct hypernyms of the synset with
+	 * unique id <code>SenseId</code>, the synset itself included as in JWNL, or null if
+	 * the synset is not found.
+	 */
+	public int[] GetCoordinateIds(int SenseId)
+	{
+		int ordinal = ToGraphOrdinal(SenseId);
+		if (ordinal < 0)
+			return null;
+		return ToIds(GetCoordinateOrdinals(ordinal));
+	}
+
+	public int[] GetAntonymIds(int SenseId)
+	{
+		return GetPointerTargetIds(SenseId, WordNetBinaryArray.ANTONYM);
+	}
+
+	public int[] GetVerbGroupIds(int SenseId)
+	{
+		return GetPointerTargetIds(SenseId, WordNetBinaryArray.VERB_GROUP);
+	}
+
+	public int[] GetDerivedTermIds(int SenseId)
+	{
+		return GetPointerTargetIds(SenseId, WordNetBinaryArray.DERIVED);
+	}
+
+	public int[] GetNominalizationIds(int SenseId)
+	{
+		return GetPointerTargetIds(SenseId, WordNetBinaryArray.NOMINALIZATION);
+	}
+
+	public int[] GetIdenticalSenseIds(int SenseId)
+	{
+		return GetPointerTargetIds(SenseId, WordNetBinaryArray.SIMILAR_TO);
+	}
+
+	public int[] GetProximalTermIds(int SenseId)
+	{
+		return GetPointerTargetIds(SenseId, WordNetBinaryArray.SEE_ALSO);
+	}
+
+	private int[] GetPointerTargetIds(int SenseId, byte[] Types)
+	{
+		int ordinal = ToGraphOrdinal(SenseId);
+		if (ordinal < 0)
+			return null;
+		return ToIds(GetTargetOrdinalsAt(ordinal, Types));
+	}
+
+	/**
+	 * Returns the ordinals the synset with unique id <code>SenseId</code> points to with
+	 * pointers of the given types, or null if there is no compiled synset graph or the
+	 * synset is not in it.
+	 */
+	private int[] GetTargetOrdinals(int SenseId, byte[] Types)
+	{
+		if (m_BinaryArray == null)
+			return null;
+		int ordinal = ToOrdinal(SenseId);
+		if (ordinal < 0)
+			return null;
+		return GetTargetOrdinalsAt(ordinal, Types);
+	}
+
+	/*
+	 * Copies the pointer target slices of each type, in the order of the types.
+	 */
+	private int[] GetTargetOrdinalsAt(int ordinal, byte[] Types)
+	{
+		int count = 0;
+		for (int t = 0; t < Types.length; t++)
+			count += m_BinaryArray.getPointerEnd(ordinal, Types[t]) - m_BinaryArray.getPointerStart(ordinal, Types[t]);
+		int[] Targets = new int[count];
+		int filled = 0;
+		for (int t = 0; t < Types.length; t++)
+		{
+			IntBuffer Slice = m_BinaryArray.getPointerTargets(ordinal, Types[t]);
+			int length = Slice.remaining();
+			Slice.get(Targets, filled, length);
+			filled += length;
+		}
+		return Targets;
+	}
+
+	/*
+	 * Returns the hyponyms of the hypernyms of a synset, in ordinal order and without
+	 * duplicates. The hyponym slices are copied side by side; a single slice is already
+	 * sorted and unique, otherwise the copy is sorted and compacted in place.
+	 */
+	private int[] GetCoordinateOrdinals(int ordinal)
+	{
+		int end = m_BinaryArray.getPointerEnd(ordinal, WordNetBinaryArray.HYPERNYM);
+		int start = m_BinaryArray.getPointerStart(ordinal, WordNetBinaryArray.HYPERNYM);
+		int count = 0;
+		for (int i = start; i < end; i++)
+		{
+			int hypernym = m_BinaryArray.getPointerTarget(i);
+			count += m_BinaryArray.getPointerEnd(hypernym, WordNetBinaryArray.HYPONYM) - m_BinaryArray.getPointerStart(hypernym, WordNetBinaryArray.HYPONYM);
+		}
+		int[] Targets = new int[count];
+		int filled = 0;
+		for (int i = start; i < end; i++)
+		{
+			IntBuffer Slice = m_BinaryArray.getPointerTargets(m_BinaryArray.getPointerTarget(i), WordNetBinaryArray.HYPONYM);
+			int length = Slice.remaining();
+			Slice.get(Targets, filled, length);
+			filled += length;
+		}
+		if (end - start < 2)
+			return Targets;
+		Arrays.sort(Targets);
+		int unique = 0;
+		for (int i = 0; i < Targets.length; i++)
+		{
+			if (unique == 0 || Targets[i] != Targets[unique - 1])
+				Targets[unique++] = Targets[i];
+		}
+		return unique == Targets.length ? Targets : Arrays.copyOf(Targets, unique);
+	}
+
+	private int[] ToIds(int[] Ordinals)
+	{
+		int[] Ids = new int[Ordinals.length];
+		for (int i = 0; i < Ordinals.length; i++)
+			Ids[i] = (int) SenseIdCodec.encode(m_BinaryArray.getPosKey(Ordinals[i]), m_BinaryArray.getOffset(Ordinals[i]));
+		return Ids;
+	}
+
+	/*
+	 * Returns the unique lemmas of the synsets at the given ordinals, or null if there are none.
+	 */
+	private String[] GetLemmasAtOrdinals(int[] Ordinals)
+	{
+		Set LemmaSet = new LinkedHashSet();
+		for (int i = 0; i < Ordinals.length; i++)
+		{
+			int count = m_BinaryArray.getWordCount(Ordinals[i]);
+			for (int w = 0; w < count; w++)
+				AddLemma(m_BinaryArray.getLemma(m_BinaryArray.getWord(Ordinals[i], w)), LemmaSet);
+		}
+		return GetStringVectorFromList(new ArrayList(LemmaSet));
+	}
 }
@@ -8,23 +8,24 @@
 
 package com.libereco.taxmap.symbolics.semantics.wordnet;
 
+import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
 import java.util.*;
 
 import com.libereco.taxmap.symbolics.config.Environment;
 import com.libereco.taxmap.symbolics.config.EnvironmentException;
 import com.libereco.taxmap.symbolics.data.ling.IDenotation;
-import com.libereco.taxmap.symbolics.data.ling.Sense;
+import com.libereco.taxmap.symbolics.data.ling.SenseIdCodec;
 import com.libereco.taxmap.symbolics.data.map.IRelationInstance;
 import com.libereco.taxmap.symbolics.semantics.*;
+import com.libereco.taxmap.symbolics.util.BoundedCache;
 
 import net.didion.jwnl.JWNL;
 import net.didion.jwnl.JWNLException;
 import net.didion.jwnl.data.*;
-import net.didion.jwnl.data.list.PointerTargetNode;
-import net.didion.jwnl.data.list.PointerTargetNodeList;
-import net.didion.jwnl.data.list.PointerTargetTree;
 import net.didion.jwnl.data.relationship.AsymmetricRelationship;
 import net.didion.jwnl.data.relationship.Relationship;
 import net.didion.jwnl.data.relationship.RelationshipFinder;
@@ -43,13 +44,37 @@ public class WordNetReader extends Environment implements ISemantics, IDenotatio
 	private static final Logger log = Logger.getLogger(WordNetReader.class);
 
 	private static final String JWNL_CONFIG_PATH = "JWNLPropertiesPath";
+	private static final String RELATION_CACHE_SIZE = "RelationCacheSize";
+	private static final String BINARY_PATH = "WordNetBinaryPath";
+	private static final String LEMMA_CACHE_SIZE = "LemmaCacheSize";
+	private static final String LEMMA_VOCABULARY_PATH = "LemmaVocabularyPath";
+	private static final String RELATION_SEARCH_DEPTH = "RelationSearchDepth";
+	private static final String LEMMA_PAIR_CACHE_SIZE = "LemmaPairCacheSize";
+	private static final String LEMMA_PAIR_PATH = "LemmaPairPath";
+	private static final String LEMMA_PAIR_LEMMA_LIMIT = "LemmaPairLemmaLimit";
+	private static final String UNRELATED_FILTER_SIZE = "UnrelatedPairFilterSize";
+	private static final String UNRELATED_FILTER_RATE = "UnrelatedPairFalsePositiveRate";
+	private static final int DEFAULT_LEMMA_CACHE_SIZE = 1 << 16;
+	private static final PointerType[] HOLONYM_TYPES = { PointerType.MEMBER_HOLONYM, PointerType.PART_HOLONYM, PointerType.SUBSTANCE_HOLONYM };
 	private Dictionary _dictionary = null;
 
-	private Map<String, Character> _meaningMap;
+	// optional compiled synset graph with its indexes, classifying the pairs it holds
+	private WordNetSnapshot _snapshot = null;
+	private int _relationSearchDepth = PointerPathFinder.DEFAULT_MAX_DEPTH;
+
+	private RelationCache _relationCache;
+	private LemmaPairCache _lemmaPairCache;
+	// optional filter of unrelated pairs in the compiled graph, which then take no relation cache entries
+	private UnrelatedPairFilter _unrelatedFilter = null;
+
+	// lookups of surface forms, shared by getDenotationList, getLemmatization and isEqual
+	private BoundedCache<String, LemmaEntry> _lemmaCache;
 
 	public WordNetReader() 
 	{
-		_meaningMap = new HashMap<String, Character>();
+		_relationCache = new RelationCache();
+		_lemmaPairCache = new LemmaPairCache();
+		_lemmaCache = new BoundedCache<String, LemmaEntry>(DEFAULT_LEMMA_CACHE_SIZE);
 	}
 
 	@Override
@@ -87,29 +112,203 @@ public class WordNetReader extends Environment implements ISemantics, IDenotatio
 				log.error(errorString);
 				throw new EnvironmentException(errorString);
 			}
+
+			if (attributes.containsKey(RELATION_CACHE_SIZE)) 
+			{
+				try 
+				{
+					_relationCache = new RelationCache(Integer.parseInt(attributes.getProperty(RELATION_CACHE_SIZE)));
+				} 
+				catch (NumberFormatException e) 
+				{
+					final String errorString = "Illegal relation cache size " + attributes.getProperty(RELATION_CACHE_SIZE);
+					log.error(errorString, e);
+					throw new EnvironmentException(errorString, e);
+				}
+			}
+
+			if (attributes.containsKey(LEMMA_CACHE_SIZE)) 
+			{
+				try 
+				{
+					_lemmaCache = new BoundedCache<String, LemmaEntry>(Integer.parseInt(attributes.getProperty(LEMMA_CACHE_SIZE)));
+				} 
+				catch (NumberFormatException e) 
+				{
+					final String errorString = "Illegal lemma cache size " + attributes.getProperty(LEMMA_CACHE_SIZE);
+					log.error(errorString, e);
+					throw new EnvironmentException(errorString, e);
+				}
+			}
+
+			if (attributes.containsKey(LEMMA_PAIR_CACHE_SIZE) || attributes.containsKey(LEMMA_PAIR_LEMMA_LIMIT)) 
+			{
+				try 
+				{
+					final String size = attributes.getProperty(LEMMA_PAIR_CACHE_SIZE);
+					final String limit = attributes.getProperty(LEMMA_PAIR_LEMMA_LIMIT);
+					_lemmaPairCache = new LemmaPairCache(null == size ? RelationCache.DEFAULT_CAPACITY : Integer.parseInt(size), null == limit ? LemmaPairCache.DEFAULT_LEMMA_LIMIT : Integer.parseInt(limit));
+				} 
+				catch (IllegalArgumentException e) 
+				{
+					final String errorString = "Illegal lemma pair cache " + attributes.getProperty(LEMMA_PAIR_CACHE_SIZE) + ", " + attributes.getProperty(LEMMA_PAIR_LEMMA_LIMIT);
+					log.error(errorString, e);
+					throw new EnvironmentException(errorString, e);
+				}
+			}
+
+			if (attributes.containsKey(UNRELATED_FILTER_SIZE) || attributes.containsKey(UNRELATED_FILTER_RATE)) 
+			{
+				try 
+				{
+					final String size = attributes.getProperty(UNRELATED_FILTER_SIZE);
+					final String rate = attributes.getProperty(UNRELATED_FILTER_RATE);
+					_unrelatedFilter = new UnrelatedPairFilter(null == size ? UnrelatedPairFilter.DEFAULT_EXPECTED_PAIRS : Integer.parseInt(size), null == rate ? UnrelatedPairFilter.DEFAULT_FALSE_POSITIVE_RATE : Double.parseDouble(rate));
+				} 
+				catch (IllegalArgumentException e) 
+				{
+					final String errorString = "Illegal unrelated pair filter " + attributes.getProperty(UNRELATED_FILTER_SIZE) + ", " + attributes.getProperty(UNRELATED_FILTER_RATE);
+					log.error(errorString, e);
+					throw new EnvironmentException(errorString, e);
+				}
+			}
+
+			if (attributes.containsKey(LEMMA_VOCABULARY_PATH)) 
+			{
+				loadVocabulary(attributes.getProperty(LEMMA_VOCABULARY_PATH));
+			}
+
+			if (attributes.containsKey(RELATION_SEARCH_DEPTH)) 
+			{
+				try 
+				{
+					_relationSearchDepth = Integer.parseInt(attributes.getProperty(RELATION_SEARCH_DEPTH));
+				} 
+				catch (NumberFormatException e) 
+				{
+					final String errorString = "Illegal relation search depth " + attributes.getProperty(RELATION_SEARCH_DEPTH);
+					log.error(errorString, e);
+					throw new EnvironmentException(errorString, e);
+				}
+			}
+
+			if (attributes.containsKey(BINARY_PATH)) 
+			{
+				try 
+				{
+					_snapshot = new WordNetSnapshot(WordNetBinaryArray.map(attributes.getProperty(BINARY_PATH)), _relationSearchDepth);
+				} 
+				catch (SemanticsException e) 
+				{
+					final String errorString = e.getClass().getSimpleName() + ": " + e.getMessage();
+					log.error(errorString, e);
+					throw new EnvironmentException(errorString, e);
+				}
+			}
+
+			// pairs are classified with whatever graph and indexes were set up above
+			if (attributes.containsKey(LEMMA_PAIR_PATH)) 
+			{
+				loadLemmaPairs(attributes.getProperty(LEMMA_PAIR_PATH));
+			}
 		}
 		return attribFlag;
 	}
 
+	/**
+	 * Returns the cache of relations between senses, with its hit and miss counters.
+	 */
+	public RelationCache getRelationCache() 
+	{
+		return _relationCache;
+	}
+
+	/**
+	 * Returns the filter of unrelated sense pairs, with its hit and miss counters, or
+	 * null if it is not configured.
+	 */
+	public UnrelatedPairFilter getUnrelatedPairFilter() 
+	{
+		return _unrelatedFilter;
+	}
+
+	/**
+	 * Returns the cache of relations between surface forms, with its hit and miss counters.
+	 */
+	public LemmaPairCache getLemmaPairCache() 
+	{
+		return _lemmaPairCache;
+	}
+
+	/**
+	 * Returns the cache of surface form lookups, with its hit and miss counters.
+	 */
+	public BoundedCache<String, LemmaEntry> getLemmaCache() 
+	{
+		return _lemmaCache;
+	}
+
 	public List<IDenotation> getDenotationList(String expression) throws SemanticsException 
 	{
-		List<IDenotation> meaningList = new ArrayList<IDenotation>();
+		return getLemmaEntry(expression).getDenotationList();
+	}
+
+	public String getLemmatization(String derivation) throws SemanticsException 
+	{
+		String lemmaForm = getLemmaEntry(derivation).getLemma();
+		return null == lemmaForm ? derivation : lemmaForm;
+	}
+
+	public boolean isEqual(String expression1, String expression2) throws SemanticsException 
+	{
+		return getLemmaEntry(expression1).sharesIndexWord(getLemmaEntry(expression2));
+	}
+
+	/**
+	 * Returns the lemmas and senses WordNet finds for a surface form, from the cache if
+	 * they are there. The cache is keyed on the form as JWNL normalizes it.
+	 */
+	private LemmaEntry getLemmaEntry(String expression) throws SemanticsException 
+	{
+		final String surfaceForm = normalizeSurfaceForm(expression);
+		LemmaEntry entry = _lemmaCache.get(surfaceForm);
+		if (null == entry) 
+		{
+			entry = lookupLemmaEntry(surfaceForm);
+			_lemmaCache.put(surfaceForm, entry);
+		}
+		return entry;
+	}
+
+	private LemmaEntry lookupLemmaEntry(String surfaceForm) throws SemanticsException 
+	{
 		try 
 		{
-			IndexWordSet wordSet = _dictionary.lookupAllIndexWords(expression);
-			if (null != wordSet && 0 < wordSet.size()) 
+			IndexWordSet wordSet = _dictionary.lookupAllIndexWords(surfaceForm);
+			if (null == wordSet || 0 == wordSet.size()) 
 			{
-				//Looping on all words in indexWordSet
-				for (int i = 0; i < wordSet.getIndexWordArray().length; i++) 
+				return LemmaEntry.EMPTY;
+			}
+			IndexWord[] wordArray = wordSet.getIndexWordArray();
+			char[] lemmaPositions = new char[wordArray.length];
+			String[] lemmas = new String[wordArray.length];
+			int senseCount = 0;
+			for (int i = 0; i < wordArray.length; i++) 
+			{
+				lemmaPositions[i] = wordArray[i].getPOS().getKey().charAt(0);
+				lemmas[i] = wordArray[i].getLemma();
+				senseCount += wordArray[i].getSynsetOffsets().length;
+			}
+			long[] senses = new long[senseCount];
+			int next = 0;
+			for (int i = 0; i < wordArray.length; i++) 
+			{
+				for (long offset : wordArray[i].getSynsetOffsets()) 
 				{
-					IndexWord word = wordSet.getIndexWordArray()[i];
-					for (int j = 0; j < word.getSenseCount(); j++) 
-					{
-						Synset synset = word.getSenses()[j];
-						meaningList.add(new Sense(synset.getPOS().getKey().charAt(0), synset.getOffset()));
-					}
+					senses[next++] = SenseIdCodec.encode(lemmaPositions[i], offset);
 				}
 			}
+			return new LemmaEntry(lemmaPositions, lemmas, senses);
 		} 
 		catch (JWNLException e) 
 		{
@@ -117,68 +316,94 @@ public class WordNetReader extends Environment implements ISemantics, IDenotatio
 			log.error(errorString, e);
 			throw new SemanticsException(errorString, e);
 		}
-		return meaningList;
 	}
 
-	public String getLemmatization(String derivation) throws SemanticsException 
+	private static String normalizeSurfaceForm(String expression) 
+	{
+		return expression.trim().toLowerCase().replace('_', ' ');
+	}
+
+	/**
+	 * Fills the lemma cache from a file holding one surface form per line.
+	 */
+	private void loadVocabulary(String vocabularyPath) throws EnvironmentException 
 	{
+		log.info("Loading lemma vocabulary from " + vocabularyPath);
 		try 
 		{
-			String lemmaForm = derivation;
-			IndexWordSet wordSet = _dictionary.lookupAllIndexWords(derivation);
-			if (null != wordSet) 
+			BufferedReader reader = new BufferedReader(new FileReader(vocabularyPath));
+			try 
 			{
-				for (IndexWord indexWord : wordSet.getIndexWordArray()) 
+				String line;
+				while (null != (line = reader.readLine())) 
 				{
-					String word = indexWord.getLemma();
-					if (null != word) 
+					if (0 < line.trim().length()) 
 					{
-						lemmaForm = word;
-						break;
+						getLemmaEntry(line);
 					}
 				}
+			} 
+			finally 
+			{
+				reader.close();
 			}
-			return lemmaForm;
 		} 
-		catch (JWNLException e) 
+		catch (IOException e) 
 		{
 			final String errorString = e.getClass().getSimpleName() + ": " + e.getMessage();
 			log.error(errorString, e);
-			throw new SemanticsException(errorString, e);
+			throw new EnvironmentException(errorString, e);
+		} 
+		catch (SemanticsException e) 
+		{
+			final String errorString = e.getClass().getSimpleName() + ": " + e.getMessage();
+			log.error(errorString, e);
+			throw new EnvironmentException(errorString, e);
 		}
+		log.info("Lemma vocabulary loaded: " + _lemmaCache.size() + " surface forms");
 	}
 
-	public boolean isEqual(String expression1, String expression2) throws SemanticsException 
+	/**
+	 * Fills the lemma pair cache from a file holding one pair of surface forms per line,
+	 * separated by a tab and optionally followed by the part of speech keys allowed for
+	 * each, in two more tab separated fields.
+	 */
+	private void loadLemmaPairs(String pairPath) throws EnvironmentException 
 	{
+		log.info("Loading lemma pairs from " + pairPath);
 		try 
 		{
-			IndexWordSet wordSet1 = _dictionary.lookupAllIndexWords(expression1);
-			IndexWordSet wordSet2 = _dictionary.lookupAllIndexWords(expression2);
-			if ((wordSet1 == null) || (wordSet2 == null) || (wordSet1.size() < 1) || (wordSet2.size() < 1)) 
-			{
-				return false;
-			} 
-			else 
+			BufferedReader reader = new BufferedReader(new FileReader(pairPath));
+			try 
 			{
-				IndexWord[] wordArray1 = wordSet1.getIndexWordArray();
-				IndexWord[] wordArray2 = wordSet2.getIndexWordArray();
-				for (IndexWord word1 : wordArray1) 
+				String line;
+				while (null != (line = reader.readLine())) 
 				{
-					for (IndexWord word2 : wordArray2) 
+					final String[] fields = line.split("\t");
+					if (2 <= fields.length && 0 < fields[0].trim().length() && 0 < fields[1].trim().length()) 
 					{
-						if (word1.equals(word2))
-							return true;
+						getRelation(fields[0], 2 < fields.length ? fields[2] : null, fields[1], 3 < fields.length ? fields[3] : null);
 					}
 				}
+			} 
+			finally 
+			{
+				reader.close();
 			}
 		} 
-		catch (JWNLException e) 
+		catch (IOException e) 
 		{
 			final String errorString = e.getClass().getSimpleName() + ": " + e.getMessage();
 			log.error(errorString, e);
-			throw new SemanticsException(errorString, e);
+			throw new EnvironmentException(errorString, e);
+		} 
+		catch (DenotationException e) 
+		{
+			final String errorString = e.getClass().getSimpleName() + ": " + e.getMessage();
+			log.error(errorString, e);
+			throw new EnvironmentException(errorString, e);
 		}
-		return false;
+		log.info("Lemma pairs loaded: " + _lemmaPairCache.size() + " relations");
 	}
 
 	public ISynset getISynset(IDenotation source) throws SemanticsException 
@@ -186,106 +411,180 @@ public class WordNetReader extends Environment implements ISemantics, IDenotatio
 		return new WordNetSynset(getSynset(source));
 	}
 
+	/**
+	 * Classifies every pair of senses once, most frequent senses first, and returns the
+	 * strongest relation found; equivalence ends the search.
+	 */
 	public char getRelation(List<IDenotation> sourceMeaningList, List<IDenotation> targetMeaningList) throws DenotationException 
 	{
-		for (IDenotation sourceMeaning : sourceMeaningList) 
+		final IDenotation[] sourceMeanings = RelationMatrix.getFrequencyOrder(sourceMeaningList);
+		final IDenotation[] targetMeanings = RelationMatrix.getFrequencyOrder(targetMeaningList);
+		char strongest = IRelationInstance.IDK;
+		for (IDenotation sourceMeaning : sourceMeanings) 
 		{
-			for (IDenotation targetMeaning : targetMeaningList) 
+			for (IDenotation targetMeaning : targetMeanings) 
 			{
-				if (getSemanticRelation(sourceMeaning, targetMeaning, IRelationInstance.EQUIVALENCE)) 
+				final char relation = getSemanticRelation(sourceMeaning, targetMeaning);
+				if (IRelationInstance.EQUIVALENCE == relation) 
 				{
-					return IRelationInstance.EQUIVALENCE;
+					return relation;
 				}
+				strongest = RelationMatrix.getStronger(strongest, relation);
 			}
 		}
+		return strongest;
+	}
 
-		for (IDenotation sourceMeaning : sourceMeaningList) 
+	/**
+	 * Returns the strongest relation between the senses of two surface forms, each
+	 * restricted to some parts of speech. Pairs are cached on the forms as JWNL normalizes
+	 * them, so a repeated pair skips both the sense lookups and the sense-pair loop.
+	 *
+	 * @param sourceExpression source surface form
+	 * @param sourcePositions part of speech keys the source senses may have, or null for all
+	 * @param targetExpression target surface form
+	 * @param targetPositions part of speech keys the target senses may have, or null for all
+	 * @return relation between the two sense lists
+	 * @throws DenotationException
+	 */
+	public char getRelation(String sourceExpression, String sourcePositions, String targetExpression, String targetPositions) throws DenotationException 
+	{
+		final String source = normalizeSurfaceForm(sourceExpression);
+		final String target = normalizeSurfaceForm(targetExpression);
+		final int sourceMask = LemmaPairCache.toPositionMask(sourcePositions);
+		final int targetMask = LemmaPairCache.toPositionMask(targetPositions);
+		final long lemmaDuplet = _lemmaPairCache.toKey(source, sourceMask, target, targetMask);
+		char relationSymbol = LemmaPairCache.NO_KEY == lemmaDuplet ? RelationCache.NOT_FOUND : _lemmaPairCache.get(lemmaDuplet);
+
+		if (RelationCache.NOT_FOUND == relationSymbol) 
 		{
-			for (IDenotation targetMeaning : targetMeaningList) 
+			try 
 			{
-				if (getSemanticRelation(sourceMeaning, targetMeaning, IRelationInstance.LESS_GENERAL)) 
-				{
-					return IRelationInstance.LESS_GENERAL;
-				}
+				relationSymbol = getRelation(getDenotationList(source, sourceMask), getDenotationList(target, targetMask));
+			} 
+			catch (SemanticsException e) 
+			{
+				final String errorString = e.getClass().getSimpleName() + ": " + e.getMessage();
+				log.error(errorString, e);
+				throw new DenotationException(errorString, e);
+			}
+			if (LemmaPairCache.NO_KEY != lemmaDuplet) 
+			{
+				_lemmaPairCache.put(lemmaDuplet, relationSymbol);
 			}
 		}
+		return relationSymbol;
+	}
 
-		for (IDenotation sourceMeaning : sourceMeaningList) 
+	private List<IDenotation> getDenotationList(String surfaceForm, int positionMask) throws SemanticsException 
+	{
+		List<IDenotation> meaningList = getLemmaEntry(surfaceForm).getDenotationList();
+		if (LemmaPairCache.ANY_POSITION == positionMask) 
 		{
-			for (IDenotation targetMeaning : targetMeaningList) 
+			return meaningList;
+		}
+		for (Iterator<IDenotation> i = meaningList.iterator(); i.hasNext();) 
+		{
+			if (!LemmaPairCache.allows(positionMask, i.next().getPosition())) 
 			{
-				if (getSemanticRelation(sourceMeaning, targetMeaning, IRelationInstance.MORE_GENERAL)) 
-				{
-					return IRelationInstance.MORE_GENERAL;
-				}
+				i.remove();
 			}
 		}
+		return meaningList;
+	}
 
-		for (IDenotation sourceMeaning : sourceMeaningList) 
+	public char[] getRelationMatrix(List<List<IDenotation>> sourceMeaningLists, List<List<IDenotation>> targetMeaningLists) throws DenotationException 
+	{
+		return RelationMatrix.compute(sourceMeaningLists, targetMeaningLists, new RelationMatrix.SenseRelation() 
 		{
-			for (IDenotation targetMeaning : targetMeaningList) 
+			public char getRelation(IDenotation sourceMeaning, IDenotation targetMeaning) throws DenotationException 
 			{
-				if (getSemanticRelation(sourceMeaning, targetMeaning, IRelationInstance.DISJOINT)) 
-				{
-					return IRelationInstance.DISJOINT;
-				}
+				return getSemanticRelation(sourceMeaning, targetMeaning);
 			}
-		}
-		return IRelationInstance.IDK;
+		});
 	}
 
 	/**
-	 * Method which returns whether particular type of relation between
-	 * two senses holds(according to semantics).
+	 * Method which returns the strongest relation holding between
+	 * two senses (according to semantics).
 	 * It uses cache to store already obtained relations in order to improve performance.
+	 * The cache is keyed on the packed pair of senses, so a lookup allocates nothing.
+	 * With an unrelated pair filter, pairs of senses in the compiled graph found
+	 * unrelated go to the filter instead of the cache, which keeps its room for related
+	 * pairs and for pairs only JWNL can classify. The filter is asked before the cache,
+	 * and a hit is answered by the index checks alone, which load no synset and give a
+	 * false positive its true relation, so a hit never changes a result.
 	 *
 	 */
-	private boolean getSemanticRelation(IDenotation sourceMeaning, IDenotation targetMeaning, char symbol) throws DenotationException 
+	private char getSemanticRelation(IDenotation sourceMeaning, IDenotation targetMeaning) throws DenotationException 
 	{
-		final String meaningDuplet = sourceMeaning.toString() + targetMeaning.toString();
-		Character relationSymbol = _meaningMap.get(meaningDuplet);
+		final long meaningDuplet = RelationCache.toKey(sourceMeaning, targetMeaning);
+		final int source = getOrdinal(sourceMeaning);
+		final int target = getOrdinal(targetMeaning);
+		final boolean filtered = null != _unrelatedFilter && RelationCache.NO_KEY != meaningDuplet && 0 <= source && 0 <= target;
+		if (filtered && _unrelatedFilter.mightContain(meaningDuplet)) 
+		{
+			return _snapshot.getRelation(source, target);
+		}
 
-		if (null == relationSymbol) 
+		char relationSymbol = RelationCache.NO_KEY == meaningDuplet ? RelationCache.NOT_FOUND : _relationCache.get(meaningDuplet);
+		if (RelationCache.NOT_FOUND == relationSymbol) 
 		{
-			if (isSourceSynonymToTarget(sourceMeaning, targetMeaning)) 
-			{
-				_meaningMap.put(meaningDuplet, IRelationInstance.EQUIVALENCE);
-				return symbol == IRelationInstance.EQUIVALENCE;
-			} 
-			else 
+			relationSymbol = computeSemanticRelation(sourceMeaning, targetMeaning);
+			if (RelationCache.NO_KEY != meaningDuplet) 
 			{
-				if (isSourceAntonymToTarget(sourceMeaning, targetMeaning)) 
+				if (IRelationInstance.IDK == relationSymbol && filtered) 
 				{
-					_meaningMap.put(meaningDuplet, IRelationInstance.DISJOINT);
-					return symbol == IRelationInstance.DISJOINT;
+					_unrelatedFilter.add(meaningDuplet);
 				} 
 				else 
 				{
-					if (isSourceLessGeneralThanTarget(sourceMeaning, targetMeaning)) 
-					{
-						_meaningMap.put(meaningDuplet, IRelationInstance.LESS_GENERAL);
-						return symbol == IRelationInstance.LESS_GENERAL;
-					} 
-					else 
-					{
-						if (isSourceMoreGeneralThanTarget(sourceMeaning, targetMeaning)) 
-						{
-							_meaningMap.put(meaningDuplet, IRelationInstance.MORE_GENERAL);
-							return symbol == IRelationInstance.MORE_GENERAL;
-						} 
-						else 
-						{
-							_meaningMap.put(meaningDuplet, IRelationInstance.IDK);
-							return false;
-						}
-					}
+					_relationCache.put(meaningDuplet, relationSymbol);
 				}
 			}
 		} 
-		else 
+		return relationSymbol;
+	}
+
+	/**
+	 * Returns the ordinal of a sense in the compiled graph, whose relations are then
+	 * found by the index checks alone, or -1 if the sense is not in a compiled graph.
+	 */
+	private int getOrdinal(IDenotation meaning) 
+	{
+		return null == _snapshot ? -1 : _snapshot.getArray().getOrdinal(meaning.getPosition(), meaning.getId());
+	}
+
+	/**
+	 * Returns the strongest relation between two senses, without consulting the cache.
+	 * Pairs of the compiled graph are classified by {@link WordNetSnapshot#getRelation},
+	 * which tests the relations in the same order.
+	 */
+	private char computeSemanticRelation(IDenotation sourceMeaning, IDenotation targetMeaning) throws DenotationException 
+	{
+		final int source = getOrdinal(sourceMeaning);
+		final int target = getOrdinal(targetMeaning);
+		if (0 <= source && 0 <= target) 
 		{
-			return symbol == relationSymbol;
+			return _snapshot.getRelation(source, target);
 		}
+		if (isSourceSynonymToTarget(sourceMeaning, targetMeaning)) 
+		{
+			return IRelationInstance.EQUIVALENCE;
+		} 
+		if (isSourceAntonymToTarget(sourceMeaning, targetMeaning)) 
+		{
+			return IRelationInstance.DISJOINT;
+		} 
+		if (isSourceLessGeneralThanTarget(sourceMeaning, targetMeaning)) 
+		{
+			return IRelationInstance.LESS_GENERAL;
+		} 
+		if (isSourceMoreGeneralThanTarget(sourceMeaning, targetMeaning)) 
+		{
+			return IRelationInstance.MORE_GENERAL;
+		} 
+		return IRelationInstance.IDK;
 	}
 
 	public boolean isSourceSynonymToTarget(IDenotation sourceMeaning, IDenotation targetMeaning) throws DenotationException 
@@ -294,13 +593,19 @@ public class WordNetReader extends Environment implements ISemantics, IDenotatio
 		{
 			return true;
 		}
+		final int source = getOrdinal(sourceMeaning);
+		final int target = getOrdinal(targetMeaning);
+		if (0 <= source && 0 <= target) 
+		{
+			return _snapshot.isSynonym(source, target);
+		}
 		try 
 		{
 			Synset sourceSynset = getSynset(sourceMeaning);
 			Synset targetSynset = getSynset(targetMeaning);
 
 			RelationshipList relationList = RelationshipFinder.getInstance().findRelationships(sourceSynset, targetSynset, PointerType.SIMILAR_TO);
-			if (list.size() > 0) 
+			if (relationList.size() > 0) 
 			{
 				if (('a' == sourceMeaning.getPosition()) || ('a' == targetMeaning.getPosition())) 
 				{
@@ -329,10 +634,16 @@ public class WordNetReader extends Environment implements ISemantics, IDenotatio
 
 	public boolean isSourceAntonymToTarget(IDenotation sourceMeaning, IDenotation targetMeaning) throws DenotationException 
 	{
-		if (sourceMeaning.equals(targetMeaning)) 
+		if (sourceMeaning.equals(targetMeaning) || ('n' == sourceMeaning.getPosition() && 'n' == targetMeaning.getPosition())) 
 		{
 			return false;
 		}
+		final int source = getOrdinal(sourceMeaning);
+		final int target = getOrdinal(targetMeaning);
+		if (0 <= source && 0 <= target) 
+		{
+			return _snapshot.isAntonym(source, target);
+		}
 		try 
 		{
 			Synset sourceSynset = getSynset(sourceMeaning);
@@ -378,40 +689,20 @@ public class WordNetReader extends Environment implements ISemantics, IDenotatio
 			{
 				return false;
 			}
+			// both closures are precomputed, no synset needs to be loaded
+			final int source = getOrdinal(sourceMeaning);
+			final int target = getOrdinal(targetMeaning);
+			if (0 <= source && 0 <= target) 
+			{
+				return _snapshot.isMoreGeneral(source, target);
+			}
 			try 
 			{
 				Synset sourceSynset = getSynset(sourceMeaning);
 				Synset targetSynset = getSynset(targetMeaning);
 
 				RelationshipList list = RelationshipFinder.getInstance().findRelationships(sourceSynset, targetSynset, PointerType.HYPERNYM);
-				if (!isUnidirectionalList(list)) 
-				{
-					PointerTargetTree ptt = PointerUtils.getInstance().getInheritedMemberHolonyms(targetSynset);
-					PointerTargetNodeList ptnl = PointerUtils.getInstance().getMemberHolonyms(targetSynset);
-					if (!traverseTree(ptt, ptnl, sourceSynset)) 
-					{
-						ptt = PointerUtils.getInstance().getInheritedPartHolonyms(targetSynset);
-						ptnl = PointerUtils.getInstance().getPartHolonyms(targetSynset);
-						if (!traverseTree(ptt, ptnl, sourceSynset)) 
-						{
-							ptt = PointerUtils.getInstance().getInheritedSubstanceHolonyms(targetSynset);
-							ptnl = PointerUtils.getInstance().getSubstanceHolonyms(targetSynset);
-							if (traverseTree(ptt, ptnl, sourceSynset)) 
-							{
-								return true;
-							}
-						} 
-						else 
-						{
-							return true;
-						}
-					} 
-					else 
-					{
-						return true;
-					}
-				} 
-				else 
+				if (isUnidirectionalList(list) || isInheritedHolonym(sourceSynset, targetSynset)) 
 				{
 					return true;
 				}
@@ -433,29 +724,46 @@ public class WordNetReader extends Environment implements ISemantics, IDenotatio
 	}
 
 	/**
-	 * traverses PointerTargetTree.
+	 * Checks whether a chain of member, part or substance holonyms leads to the source
+	 * from the target or from one of its hypernyms, as JWNL's getInherited*Holonyms trees
+	 * define inherited holonyms, with the answers of {@link HolonymClosureIndex}.
 	 */
-	private static boolean traverseTree(PointerTargetTree syn, PointerTargetNodeList ptnl, Synset sourceMeaning) 
+	private static boolean isInheritedHolonym(Synset sourceSynset, Synset targetSynset) throws JWNLException 
 	{
-		java.util.List MGListsList = syn.toList();
-		for (Object aMGListsList : MGListsList) 
+		List<Synset> ancestors = new ArrayList<Synset>();
+		Set<Synset> visited = new HashSet<Synset>();
+		ancestors.add(targetSynset);
+		visited.add(targetSynset);
+		for (int i = 0; i < ancestors.size(); i++) 
 		{
-			PointerTargetNodeList MGList = (PointerTargetNodeList) aMGListsList;
-			for (Object aMGList : MGList) 
+			for (Pointer pointer : ancestors.get(i).getPointers(PointerType.HYPERNYM)) 
 			{
-				Synset toAdd = ((PointerTargetNode) aMGList).getSynset();
-				if (toAdd.equals(sourceMeaning)) 
+				final Synset hypernym = pointer.getTargetSynset();
+				if (visited.add(hypernym)) 
 				{
-					return true;
+					ancestors.add(hypernym);
 				}
 			}
 		}
-		for (Object aPtnl : ptnl) 
+		for (PointerType holonymType : HOLONYM_TYPES) 
 		{
-			Synset toAdd = ((PointerTargetNode) aPtnl).getSynset();
-			if (toAdd.equals(sourceMeaning)) 
+			// chains keep to one holonym type
+			List<Synset> queue = new ArrayList<Synset>(ancestors);
+			Set<Synset> holonyms = new HashSet<Synset>();
+			for (int i = 0; i < queue.size(); i++) 
 			{
-				return true;
+				for (Pointer pointer : queue.get(i).getPointers(holonymType)) 
+				{
+					final Synset holonym = pointer.getTargetSynset();
+					if (holonym.equals(sourceSynset)) 
+					{
+						return true;
+					}
+					if (holonyms.add(holonym)) 
+					{
+						queue.add(holonym);
+					}
+				}
 			}
 		}
 		return false;
@@ -0,0 +1,232 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.semantics.wordnet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.libereco.taxmap.symbolics.data.map.IRelationInstance;
+import com.libereco.taxmap.symbolics.semantics.SemanticsException;
+
+/**
+ * Immutable view of a compiled synset graph together with its derived indexes, and
+ * the graph tests relation classification is made of. {@link WordNetReader} and
+ * {@link InMemoryWordNetBinaryArray} both classify sense pairs of the graph with these
+ * tests, so the two backends give the same relations.
+ * <p>
+ * A snapshot is thread-safe: all its state is final and only ever read, through
+ * absolute buffer accesses, and path searches keep their scratch space per thread.
+ * One snapshot can therefore be shared by any number of matching threads, none of
+ * which goes through the JWNL dictionary singletons or their caches.
+ *
+ * @author Chiranjit Acharya
+ */
+public final class WordNetSnapshot
+{
+	// detachment rules of WordNet morphological processing, per part of speech
+	private static final String[][] NOUN_RULES = { { "s", "" }, { "ses", "s" }, { "xes", "x" }, { "zes", "z" }, { "ches", "ch" }, { "shes", "sh" }, { "men", "man" }, { "ies", "y" } };
+	private static final String[][] VERB_RULES = { { "s", "" }, { "ies", "y" }, { "es", "e" }, { "es", "" }, { "ed", "e" }, { "ed", "" }, { "ing", "e" }, { "ing", "" } };
+	private static final String[][] ADJECTIVE_RULES = { { "er", "" }, { "est", "" }, { "er", "e" }, { "est", "e" } };
+	private static final String[][][] RULES = { NOUN_RULES, VERB_RULES, ADJECTIVE_RULES, {} };
+
+	private static final int NOUN = WordNetBinaryArray.getPosIndex('n');
+	private static final int VERB = WordNetBinaryArray.getPosIndex('v');
+	private static final int ADJECTIVE = WordNetBinaryArray.getPosIndex('a');
+
+	private final WordNetBinaryArray _array;
+	private final HypernymClosureIndex _hypernymIndex;
+	private final HolonymClosureIndex _holonymIndex;
+	private final AdjectiveClusterIndex _clusterIndex;
+	private final PointerPathFinder _pathFinder;
+
+	public WordNetSnapshot(WordNetBinaryArray array) throws SemanticsException
+	{
+		this(array, PointerPathFinder.DEFAULT_MAX_DEPTH);
+	}
+
+	/**
+	 * Creates a snapshot over a compiled graph, loading its derived indexes or building
+	 * them if the graph was compiled without them.
+	 *
+	 * @param array compiled synset graph
+	 * @param relationSearchDepth number of links a similar-to or antonymy path may have at most
+	 * @throws SemanticsException
+	 */
+	public WordNetSnapshot(WordNetBinaryArray array, int relationSearchDepth) throws SemanticsException
+	{
+		_array = array;
+		_hypernymIndex = HypernymClosureIndex.load(array);
+		_holonymIndex = HolonymClosureIndex.load(array, _hypernymIndex);
+		_clusterIndex = AdjectiveClusterIndex.load(array);
+		_pathFinder = new PointerPathFinder(array, relationSearchDepth);
+	}
+
+	/**
+	 * Memory-maps a compiled synset graph and creates a snapshot over it.
+	 *
+	 * @param fileName compiled graph file
+	 * @return snapshot of the graph
+	 * @throws SemanticsException
+	 */
+	public static WordNetSnapshot map(String fileName) throws SemanticsException
+	{
+		return new WordNetSnapshot(WordNetBinaryArray.map(fileName));
+	}
+
+	public WordNetBinaryArray getArray()
+	{
+		return _array;
+	}
+
+	public HypernymClosureIndex getHypernymIndex()
+	{
+		return _hypernymIndex;
+	}
+
+	public HolonymClosureIndex getHolonymIndex()
+	{
+		return _holonymIndex;
+	}
+
+	public AdjectiveClusterIndex getClusterIndex()
+	{
+		return _clusterIndex;
+	}
+
+	public PointerPathFinder getPathFinder()
+	{
+		return _pathFinder;
+	}
+
+	// -------------------- LEMMAS ----------------------------
+
+	/**
+	 * Returns the lemma ids of the base forms of a word for a part of speech,
+	 * trying the word itself, then the exception table, then the detachment rules.
+	 */
+	public List<Integer> getBaseLemmaList(String word, int posIndex)
+	{
+		List<Integer> lemmaList = new ArrayList<Integer>();
+		final int lemmaId = _array.findLemma(word);
+		if (hasSenses(lemmaId, posIndex))
+		{
+			lemmaList.add(lemmaId);
+		}
+		if (0 <= lemmaId)
+		{
+			final int end = _array.getExceptionEnd(lemmaId, posIndex);
+			for (int i = _array.getExceptionStart(lemmaId, posIndex); i < end; i++)
+			{
+				final int baseId = _array.getException(i);
+				if (hasSenses(baseId, posIndex) && !lemmaList.contains(baseId))
+				{
+					lemmaList.add(baseId);
+				}
+			}
+		}
+		if (lemmaList.isEmpty())
+		{
+			for (String[] rule : RULES[posIndex])
+			{
+				if (word.length() > rule[0].length() && word.endsWith(rule[0]))
+				{
+					final int baseId = _array.findLemma(word.substring(0, word.length() - rule[0].length()) + rule[1]);
+					if (hasSenses(baseId, posIndex) && !lemmaList.contains(baseId))
+					{
+						lemmaList.add(baseId);
+					}
+				}
+			}
+		}
+		return lemmaList;
+	}
+
+	private boolean hasSenses(int lemmaId, int posIndex)
+	{
+		return 0 <= lemmaId && _array.getSenseStart(lemmaId, posIndex) < _array.getSenseEnd(lemmaId, posIndex);
+	}
+
+	// -------------------- RELATIONS ----------------------------
+
+	/**
+	 * Returns the strongest relation between two synsets: equivalence, then
+	 * disjointness, then less and more generality, or IDK if none holds.
+	 */
+	public char getRelation(int source, int target)
+	{
+		if (isSynonym(source, target))
+		{
+			return IRelationInstance.EQUIVALENCE;
+		}
+		if (isAntonym(source, target))
+		{
+			return IRelationInstance.DISJOINT;
+		}
+		if (isMoreGeneral(target, source))
+		{
+			return IRelationInstance.LESS_GENERAL;
+		}
+		if (isMoreGeneral(source, target))
+		{
+			return IRelationInstance.MORE_GENERAL;
+		}
+		return IRelationInstance.IDK;
+	}
+
+	/**
+	 * Checks whether two synsets are the same or similar: adjectives only when they are
+	 * in one head and satellite cluster, other synsets when a short path of similar-to
+	 * pointers joins them.
+	 */
+	public boolean isSynonym(int source, int target)
+	{
+		if (source == target)
+		{
+			return true;
+		}
+		if (ADJECTIVE == getPosIndex(source) || ADJECTIVE == getPosIndex(target))
+		{
+			return _clusterIndex.isSameCluster(source, target);
+		}
+		return _pathFinder.isConnected(source, target, PointerPathFinder.mask(WordNetBinaryArray.SIMILAR_TO));
+	}
+
+	/**
+	 * Checks whether a short path of antonym pointers joins two synsets. Nouns are never
+	 * antonyms of nouns.
+	 */
+	public boolean isAntonym(int source, int target)
+	{
+		if (source == target || (NOUN == getPosIndex(source) && NOUN == getPosIndex(target)))
+		{
+			return false;
+		}
+		return _pathFinder.isConnected(source, target, PointerPathFinder.mask(WordNetBinaryArray.ANTONYM));
+	}
+
+	/**
+	 * Checks whether the source is a hypernym of the target at any depth, or a member,
+	 * part or substance holonym of the target or of one of its hypernyms. Only nouns
+	 * are compared with nouns and verbs with verbs.
+	 */
+	public boolean isMoreGeneral(int source, int target)
+	{
+		final int posIndex = getPosIndex(source);
+		if (source == target || posIndex != getPosIndex(target) || (NOUN != posIndex && VERB != posIndex))
+		{
+			return false;
+		}
+		return _hypernymIndex.isAncestor(source, target) || _holonymIndex.isInheritedHolonym(source, target);
+	}
+
+	private int getPosIndex(int ordinal)
+	{
+		return WordNetBinaryArray.getPosIndex(_array.getPosKey(ordinal));
+	}
+}
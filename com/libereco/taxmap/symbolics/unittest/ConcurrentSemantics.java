@@ -0,0 +1,169 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.libereco.taxmap.symbolics.data.ling.Denotation;
+import com.libereco.taxmap.symbolics.data.ling.IDenotation;
+import com.libereco.taxmap.symbolics.data.ling.ISense;
+import com.libereco.taxmap.symbolics.semantics.ISynset;
+import com.libereco.taxmap.symbolics.semantics.wordnet.InMemoryWordNetBinaryArray;
+import com.libereco.taxmap.symbolics.semantics.wordnet.WordNetBinaryArray;
+import com.libereco.taxmap.symbolics.semantics.wordnet.WordNetSnapshot;
+
+/**
+ * Checks that one InMemoryWordNetBinaryArray can be shared by many matching threads:
+ * every thread must reproduce the single-threaded results, and throughput should
+ * grow with the number of threads.
+ */
+public class ConcurrentSemantics
+{
+	private static final String ConcurrentSemanticsUsage = "java ConcurrentSemantics <compiled wordnet graph> [max threads] [word pairs]";
+
+	public static void main(String[] args)
+	{
+		if (args.length < 1 || args.length > 3)
+		{
+			System.out.println(ConcurrentSemanticsUsage);
+			System.exit(-1);
+		}
+
+		try
+		{
+			WordNetSnapshot Snapshot = WordNetSnapshot.map(args[0]);
+			int MaxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+			int PairCount = args.length > 2 ? Integer.parseInt(args[2]) : 20000;
+			boolean Passed = new ConcurrentSemantics(Snapshot, PairCount).runTest(MaxThreads);
+			System.exit(Passed ? 0 : 1);
+		}
+		catch (Exception ex)
+		{
+			ex.printStackTrace();
+			System.exit(-1);
+		}
+	}
+
+	private final InMemoryWordNetBinaryArray Semantics;
+	private final String[] SourceWords;
+	private final String[] TargetWords;
+	private final String[] Expected;
+
+	public ConcurrentSemantics(WordNetSnapshot Snapshot, int PairCount) throws Exception
+	{
+		Semantics = new InMemoryWordNetBinaryArray(Snapshot);
+
+		// reproducible word pairs drawn from the lemma table
+		WordNetBinaryArray Array = Snapshot.getArray();
+		Random Generator = new Random(20110101L);
+		SourceWords = new String[PairCount];
+		TargetWords = new String[PairCount];
+		for (int i = 0; i < PairCount; i++)
+		{
+			SourceWords[i] = Array.getLemma(Generator.nextInt(Array.getLemmaCount()));
+			TargetWords[i] = Array.getLemma(Generator.nextInt(Array.getLemmaCount()));
+		}
+
+		Expected = new String[PairCount];
+		for (int i = 0; i < PairCount; i++)
+			Expected[i] = Compare(SourceWords[i], TargetWords[i]);
+	}
+
+	public boolean runTest(int MaxThreads) throws Exception
+	{
+		System.out.println("Comparing " + SourceWords.length + " word pairs on up to " + MaxThreads + " threads ...");
+		System.out.println("");
+		boolean Passed = true;
+		double BaseRate = 0;
+		for (int ThreadCount = 1;; ThreadCount = Math.min(ThreadCount * 2, MaxThreads))
+		{
+			AtomicInteger Mismatches = new AtomicInteger();
+			long Elapsed = RunThreads(ThreadCount, Mismatches);
+			double Rate = (double) ThreadCount * SourceWords.length * 1000000000L / Elapsed;
+			if (ThreadCount == 1)
+				BaseRate = Rate;
+			System.out.println(ThreadCount + " threads: " + (long) Rate + " pairs/s, speed-up " + Math.round(Rate / BaseRate * 10) / 10.0 + ", mismatches " + Mismatches.get());
+			if (Mismatches.get() > 0)
+				Passed = false;
+			if (ThreadCount == MaxThreads)
+				break;
+		}
+		System.out.println("=====================================================================");
+		System.out.println(Passed ? "PASSED" : "FAILED");
+		return Passed;
+	}
+
+	/**
+	 * Lets every thread compare all pairs, each from its own starting point, and
+	 * returns the wall clock time taken.
+	 */
+	private long RunThreads(int ThreadCount, final AtomicInteger Mismatches) throws InterruptedException
+	{
+		final CountDownLatch Start = new CountDownLatch(1);
+		final CountDownLatch Done = new CountDownLatch(ThreadCount);
+		for (int t = 0; t < ThreadCount; t++)
+		{
+			final int Offset = t * SourceWords.length / ThreadCount;
+			Thread Worker = new Thread(new Runnable()
+			{
+				public void run()
+				{
+					try
+					{
+						Start.await();
+						for (int k = 0; k < SourceWords.length; k++)
+						{
+							int i = (Offset + k) % SourceWords.length;
+							if (!Expected[i].equals(Compare(SourceWords[i], TargetWords[i])))
+								Mismatches.incrementAndGet();
+						}
+					}
+					catch (Exception ex)
+					{
+						ex.printStackTrace();
+						Mismatches.incrementAndGet();
+					}
+					finally
+					{
+						Done.countDown();
+					}
+				}
+			});
+			Worker.start();
+		}
+		long Begin = System.nanoTime();
+		Start.countDown();
+		Done.await();
+		return System.nanoTime() - Begin;
+	}
+
+	/**
+	 * Runs the lookups element-level matching makes for a pair of words and renders
+	 * their results.
+	 */
+	private String Compare(String SourceWord, String TargetWord) throws Exception
+	{
+		StringBuffer Result = new StringBuffer();
+		Result.append(Semantics.getBaseForm(SourceWord)).append('|');
+		Result.append(Semantics.isEqual(SourceWord, TargetWord)).append('|');
+
+		List<ISense> SourceSenses = Semantics.getSenseList(SourceWord);
+		List<ISense> TargetSenses = Semantics.getSenseList(TargetWord);
+		Result.append(Semantics.getRelation(ToDenotations(SourceSenses), ToDenotations(TargetSenses))).append('|');
+		if (!SourceSenses.isEmpty())
+		{
+			ISynset Synset = Semantics.getISynset(SourceSenses.get(0));
+			Result.append(Synset.getHypernymList(3).size()).append('|');
+			Result.append(Synset.getLemmaList());
+		}
+		return Result.toString();
+	}
+
+	private static List<IDenotation> ToDenotations(List<ISense> Senses)
+	{
+		List<IDenotation> Denotations = new ArrayList<IDenotation>(Senses.size());
+		for (ISense Sense : Senses)
+			Denotations.add(new Denotation(Sense.getSensePos(), Sense.getSenseId()));
+		return Denotations;
+	}
+}
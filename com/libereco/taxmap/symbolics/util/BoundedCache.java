@@ -0,0 +1,182 @@
+/**
+  *  Copyright (C) 2011 Dushkin Digital Media, LLC
+  *  500 E 77th Street, Ste. 806
+  *  New York, NY 10162
+  *
+  *  All rights reserved.
+  **/
+
+package com.libereco.taxmap.symbolics.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, thread-safe cache evicting the least recently used entries.
+ * <p>
+ * Entries are spread over lock-striped segments by key hash. Each segment is an
+ * access-ordered map holding an equal share of the capacity, so eviction is least
+ * recently used per segment. Null keys and values are not supported.
+ *
+ * @author Chiranjit Acharya
+ */
+public class BoundedCache<K, V>
+{
+	private final Segment<K, V>[] _segments;
+	private final int _segmentMask;
+	private final int _capacity;
+
+	/**
+	 * Creates a cache holding at most about the given number of entries.
+	 *
+	 * @param capacity maximum number of cached entries
+	 */
+	public BoundedCache(int capacity)
+	{
+		int segmentCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4));
+		while (1 < segmentCount && capacity < segmentCount * 16)
+		{
+			segmentCount >>>= 1;
+		}
+		final int segmentCapacity = Math.max(1, capacity / segmentCount);
+		_segments = newSegments(segmentCount);
+		for (int i = 0; i < segmentCount; i++)
+		{
+			_segments[i] = new Segment<K, V>(segmentCapacity);
+		}
+		_segmentMask = segmentCount - 1;
+		_capacity = segmentCapacity * segmentCount;
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static <K, V> Segment<K, V>[] newSegments(int count)
+	{
+		return new Segment[count];
+	}
+
+	/**
+	 * Returns the value cached for a key, or null.
+	 */
+	public V get(K key)
+	{
+		return getSegment(key).get(key);
+	}
+
+	/**
+	 * Caches a value, evicting the least recently used entry of its segment if full.
+	 */
+	public void put(K key, V value)
+	{
+		getSegment(key).put(key, value);
+	}
+
+	public long getHitCount()
+	{
+		long hits = 0;
+		for (Segment<K, V> segment : _segments)
+		{
+			synchronized (segment)
+			{
+				hits += segment._hits;
+			}
+		}
+		return hits;
+	}
+
+	public long getMissCount()
+	{
+		long misses = 0;
+		for (Segment<K, V> segment : _segments)
+		{
+			synchronized (segment)
+			{
+				misses += segment._misses;
+			}
+		}
+		return misses;
+	}
+
+	public int size()
+	{
+		int size = 0;
+		for (Segment<K, V> segment : _segments)
+		{
+			synchronized (segment)
+			{
+				size += segment._entries.size();
+			}
+		}
+		return size;
+	}
+
+	public int getCapacity()
+	{
+		return _capacity;
+	}
+
+	public void clear()
+	{
+		for (Segment<K, V> segment : _segments)
+		{
+			synchronized (segment)
+			{
+				segment._entries.clear();
+			}
+		}
+	}
+
+	public String toString()
+	{
+		return "size=" + size() + "/" + _capacity + ", hits=" + getHitCount() + ", misses=" + getMissCount();
+	}
+
+	private Segment<K, V> getSegment(K key)
+	{
+		// spread the hash so that segments do not depend on its low bits only
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		hash *= 0x85EBCA6B;
+		hash ^= (hash >>> 13);
+		return _segments[hash & _segmentMask];
+	}
+
+	private static final class Segment<K, V>
+	{
+		private final LinkedHashMap<K, V> _entries;
+		private long _hits;
+		private long _misses;
+
+		Segment(final int capacity)
+		{
+			_entries = new LinkedHashMap<K, V>(16, 0.75f, true)
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+				{
+					return size() > capacity;
+				}
+			};
+		}
+
+		synchronized V get(K key)
+		{
+			final V value = _entries.get(key);
+			if (null == value)
+			{
+				_misses++;
+			}
+			else
+			{
+				_hits++;
+			}
+			return value;
+		}
+
+		synchronized void put(K key, V value)
+		{
+			_entries.put(key, value);
+		}
+	}
+}